@@ -0,0 +1,86 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.MemberJPARepository;
+import study.querydsl.repository.MemberRepository;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 리포지토리 조회 메서드 비교.
+ * ./gradlew jmh 로 실행하며 처리량, 평균 지연과 함께 -prof gc 할당량(gc.alloc.rate.norm)을 남긴다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MemberRepositoryBenchmark {
+    private MemberJPARepository memberJPARepository;
+    private MemberRepository memberRepository;
+
+    private MemberSearchCondition condition;
+    private Pageable pageable;
+    private String username;
+
+    @Setup
+    public void setUp(RepositoryBenchmarkState state) {
+        memberJPARepository = state.getBean(MemberJPARepository.class);
+        memberRepository = state.getBean(MemberRepository.class);
+
+        // 팀 하나 + 나이 범위 → 전체의 약 1/10 * 11/100
+        condition = new MemberSearchCondition();
+        condition.setTeamName("teamB");
+        condition.setAgeGoe(30);
+        condition.setAgeLoe(40);
+        pageable = PageRequest.of(1, 20);
+        username = "member" + (state.size / 2);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> search() {
+        return memberJPARepository.search(condition);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> searchByBuilder() {
+        return memberJPARepository.searchByBuilder(condition);
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageSimple() {
+        return memberRepository.searchPageSimple(condition, pageable);
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageComplex() {
+        return memberRepository.searchPageComplex(condition, pageable);
+    }
+
+    @Benchmark
+    public List<Member> findByUsername() {
+        return memberJPARepository.findByUsername(username);
+    }
+
+    @Benchmark
+    public List<Member> findByUsername_Querydsl() {
+        return memberJPARepository.findByUsername_Querydsl(username);
+    }
+}
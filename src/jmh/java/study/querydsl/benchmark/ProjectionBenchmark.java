@@ -0,0 +1,58 @@
+package study.querydsl.benchmark;
+
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.Projections;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+
+import java.util.concurrent.TimeUnit;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 한 행을 DTO 로 만드는 비용만 비교 (DB 없음).
+ * Projections.fields 는 리플렉션으로 필드를 채우고, QMemberTeamDto 는 생성자를 바로 호출한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProjectionBenchmark {
+    private final FactoryExpression<MemberTeamDto> fields = Projections.fields(MemberTeamDto.class,
+            member.id.as("memberId"),
+            member.username,
+            member.age,
+            team.id.as("teamId"),
+            team.name.as("teamName"));
+
+    private final FactoryExpression<MemberTeamDto> queryProjection = new QMemberTeamDto(
+            member.id,
+            member.username,
+            member.age,
+            team.id,
+            team.name);
+
+    private final Object[] row = {1L, "member1", 10, 2L, "teamA"};
+
+    @Benchmark
+    public MemberTeamDto fields() {
+        return fields.newInstance(row);
+    }
+
+    @Benchmark
+    public MemberTeamDto queryProjection() {
+        return queryProjection.newInstance(row);
+    }
+}
@@ -0,0 +1,45 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.querydsl.QuerydslApplication;
+import study.querydsl.repository.MemberBulkLoader;
+
+/**
+ * 벤치마크마다 회원 수(size)별 인메모리 H2 를 띄우고 MemberBulkLoader 로 채운다.
+ * 팀은 10개이고 회원 i 의 나이는 i % 100 이다.
+ */
+@State(Scope.Benchmark)
+public class RepositoryBenchmarkState {
+    static final int TEAM_COUNT = 10;
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    ConfigurableApplicationContext context;
+
+    @Setup
+    public void setUp() {
+        SpringApplication app = new SpringApplication(QuerydslApplication.class);
+        app.setWebApplicationType(WebApplicationType.NONE);
+        // local 프로필(InitMember) 대신 bench 프로필로 띄운다
+        context = app.run("--spring.profiles.active=bench",
+                "--spring.datasource.url=jdbc:h2:mem:bench" + size + ";DB_CLOSE_DELAY=-1");
+        context.getBean(MemberBulkLoader.class).loadWithJdbc(TEAM_COUNT, size, 1000);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+}
@@ -0,0 +1,71 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberSqlRepository;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 같은 DTO 조회를 JPAQueryFactory(MemberRepository, 기본 설정) 와 SQLQueryFactory(MemberSqlRepository) 로 비교한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SqlSearchBenchmark {
+    private MemberRepository memberRepository;
+    private MemberSqlRepository memberSqlRepository;
+
+    private MemberSearchCondition condition;
+    private Pageable pageable;
+
+    @Setup
+    public void setUp(RepositoryBenchmarkState state) {
+        memberRepository = state.getBean(MemberRepository.class);
+        memberSqlRepository = state.getBean(MemberSqlRepository.class);
+
+        condition = new MemberSearchCondition();
+        condition.setTeamName("teamB");
+        condition.setAgeGoe(30);
+        condition.setAgeLoe(40);
+        pageable = PageRequest.of(1, 20);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> jpaSearch() {
+        return memberRepository.search(condition);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> sqlSearch() {
+        return memberSqlRepository.search(condition);
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> jpaSearchPageComplex() {
+        return memberRepository.searchPageComplex(condition, pageable);
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> sqlSearchPageComplex() {
+        return memberSqlRepository.searchPageComplex(condition, pageable);
+    }
+}
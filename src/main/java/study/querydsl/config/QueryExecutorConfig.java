@@ -0,0 +1,55 @@
+package study.querydsl.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class QueryExecutorConfig {
+
+    /**
+     * 페이지 조회의 content/count 쿼리를 각자 커넥션으로 동시에 실행하는 풀.
+     * 스레드 하나가 커넥션 하나를 잡으므로 pool-size 는 커넥션 풀 크기보다 작게 둔다.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor memberQueryExecutor(@Value("${member.query-executor.pool-size:4}") int poolSize,
+                                                      @Value("${member.query-executor.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("member-query-");
+        return executor;
+    }
+
+    /**
+     * 비동기 컨트롤러(/async/**)가 리포지토리 호출을 맡기는 벌크헤드.
+     * 기본 스레드 수는 커넥션 풀 크기와 같고, 큐가 차면 TaskRejectedException 으로 바로 거절한다.
+     * DB 가 느려져도 대기는 이 큐 안에서만 쌓이고 톰캣 요청 스레드는 묶이지 않는다.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor memberBulkheadExecutor(@Value("${member.bulkhead.pool-size:${spring.datasource.hikari.maximum-pool-size:10}}") int poolSize,
+                                                         @Value("${member.bulkhead.queue-capacity:50}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("member-bulkhead-");
+        return executor;
+    }
+
+    /**
+     * username 자동완성 인덱스(UsernameIndex)를 백그라운드에서 재구축하는 스레드 하나.
+     * 재구축 요청은 UsernameIndex 가 하나로 합치므로 큐는 거의 비어 있다.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor usernameIndexExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.setThreadNamePrefix("username-index-");
+        return executor;
+    }
+}
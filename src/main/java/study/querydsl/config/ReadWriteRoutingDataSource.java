@@ -0,0 +1,32 @@
+package study.querydsl.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * @Transactional(readOnly = true) 트랜잭션은 replica 로, 나머지는 primary 로 보낸다.
+ * 커넥션을 트랜잭션 시작 시점이 아니라 첫 쿼리 시점에 고르도록 LazyConnectionDataSourceProxy 로 감싸서 쓴다.
+ * 클라이언트가 방금 쓴 데이터를 읽는 경우(read-your-writes)는 {@link ReadYourWritesFilter} 가 연 요청 범위를 보고 primary 로 보낸다.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+    public static final String PRIMARY = "primary";
+    public static final String REPLICA = "replica";
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return ReadYourWrites.pinnedToPrimary() ? PRIMARY : REPLICA;
+        }
+        // 쓰기 트랜잭션이 커밋될 때만 클라이언트를 primary 에 고정한다 (트랜잭션 밖의 조회는 고정하지 않음)
+        if (TransactionSynchronizationManager.isActualTransactionActive() && ReadYourWrites.isActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    ReadYourWrites.writeCommitted();
+                }
+            });
+        }
+        return PRIMARY;
+    }
+}
@@ -0,0 +1,49 @@
+package study.querydsl.config;
+
+import java.util.function.LongConsumer;
+
+/**
+ * 요청 단위의 read-your-writes 상태. ReadYourWritesFilter 가 클라이언트 쿠키로 start 하고 요청이 끝나면 stop 한다.
+ * 요청 밖(배치, 비동기 풀 스레드)에서는 열린 범위가 없으므로 읽기 전용 트랜잭션은 항상 replica 로 간다.
+ */
+public final class ReadYourWrites {
+    private static final ThreadLocal<ReadYourWrites> CURRENT = new ThreadLocal<>();
+
+    private boolean pinned;
+    private final LongConsumer onWrite;
+
+    private ReadYourWrites(boolean pinned, LongConsumer onWrite) {
+        this.pinned = pinned;
+        this.onWrite = onWrite;
+    }
+
+    /**
+     * @param pinned  클라이언트의 마지막 쓰기가 pin-after-write 이내이면 true
+     * @param onWrite 이 요청에서 쓰기 트랜잭션이 커밋되면 커밋 시각(epoch millis)으로 호출된다
+     */
+    static void start(boolean pinned, LongConsumer onWrite) {
+        CURRENT.set(new ReadYourWrites(pinned, onWrite));
+    }
+
+    static void stop() {
+        CURRENT.remove();
+    }
+
+    static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    static boolean pinnedToPrimary() {
+        ReadYourWrites current = CURRENT.get();
+        return current != null && current.pinned;
+    }
+
+    // 쓰기 트랜잭션 커밋 후 호출. 같은 요청의 이후 읽기도 primary 로 보낸다
+    static void writeCommitted() {
+        ReadYourWrites current = CURRENT.get();
+        if (current != null) {
+            current.pinned = true;
+            current.onWrite.accept(System.currentTimeMillis());
+        }
+    }
+}
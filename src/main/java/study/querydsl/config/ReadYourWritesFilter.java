@@ -0,0 +1,67 @@
+package study.querydsl.config;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * 클라이언트의 마지막 쓰기 시각을 쿠키(last-write)로 주고받는다.
+ * 쿠키의 시각이 pin-after-write 이내면 이 요청의 읽기 전용 조회도 primary 로 보내고(복제 지연 대비),
+ * 요청 중에 쓰기 트랜잭션이 커밋되면 커밋 시각을 쿠키로 내려준다. 어느 워커 스레드가 요청을 받든 클라이언트 기준으로 동작한다.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+    public static final String COOKIE_NAME = "last-write";
+
+    private final long pinAfterWriteMillis;
+
+    public ReadYourWritesFilter(Duration pinAfterWrite) {
+        this.pinAfterWriteMillis = pinAfterWrite.toMillis();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (pinAfterWriteMillis <= 0) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        ReadYourWrites.start(System.currentTimeMillis() - lastWriteAt(request) < pinAfterWriteMillis,
+                writeAt -> addCookie(response, writeAt));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReadYourWrites.stop();
+        }
+    }
+
+    // 쿠키가 없거나 형식이 틀리면 쓰기가 없었던 것으로 본다
+    private long lastWriteAt(HttpServletRequest request) {
+        Cookie cookie = WebUtils.getCookie(request, COOKIE_NAME);
+        if (cookie == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(cookie.getValue());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private void addCookie(HttpServletResponse response, long writeAt) {
+        if (response.isCommitted()) {
+            return;
+        }
+        Cookie cookie = new Cookie(COOKIE_NAME, String.valueOf(writeAt));
+        cookie.setPath("/");
+        cookie.setHttpOnly(true);
+        cookie.setMaxAge((int) Math.max(1, Duration.ofMillis(pinAfterWriteMillis).toSeconds()));
+        response.addCookie(cookie);
+    }
+}
@@ -1,43 +1,34 @@
 package study.querydsl.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
-import study.querydsl.entity.Member;
-import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberBulkLoader;
 
 import javax.annotation.PostConstruct;
-import javax.persistence.EntityManager;
-import javax.persistence.PersistenceContext;
 
 @Profile("local")
 @Component
 @RequiredArgsConstructor
 public class InitMember {
-    private final InitMemberService initMemberService;
+    private final MemberBulkLoader memberBulkLoader;
+
+    @Value("${member.init.mode:jpa}")
+    private MemberBulkLoader.Mode mode;
+    @Value("${member.init.teams:2}")
+    private int teamCount;
+    @Value("${member.init.members:100}")
+    private int memberCount;
+    @Value("${member.init.batch-size:1000}")
+    private int batchSize;
 
     @PostConstruct
     public void init() {
-        initMemberService.init();
-    }
-    @Component
-    static class InitMemberService {
-        @PersistenceContext
-        private EntityManager em;
-
-        @Transactional
-        public void init() {
-            Team teamA = new Team("teamA");
-            Team teamB = new Team("teamB");
-            em.persist(teamA);
-            em.persist(teamB);
-
-            for (int i = 0; i < 100; i++) {
-                Team selectedTeam = i % 2 == 0 ? teamA : teamB;
-                em.persist(new Member("member"+i, i, selectedTeam));
-            }
+        if (mode == MemberBulkLoader.Mode.JDBC) {
+            memberBulkLoader.loadWithJdbc(teamCount, memberCount, batchSize);
+        } else {
+            memberBulkLoader.loadWithJpa(teamCount, memberCount, batchSize);
         }
     }
 }
-
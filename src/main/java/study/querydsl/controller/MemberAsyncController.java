@@ -0,0 +1,58 @@
+package study.querydsl.controller;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberRepository;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * MemberController 의 조회를 벌크헤드 풀에서 실행하는 비동기 버전.
+ * 요청 스레드는 CompletableFuture 를 반환하고 바로 풀려난다.
+ */
+@RestController
+public class MemberAsyncController {
+    private final MemberRepository memberRepository;
+    private final Executor bulkheadExecutor;
+
+    public MemberAsyncController(MemberRepository memberRepository,
+                                 @Qualifier("memberBulkheadExecutor") Executor bulkheadExecutor) {
+        this.memberRepository = memberRepository;
+        this.bulkheadExecutor = bulkheadExecutor;
+    }
+
+    @GetMapping("/async/v1/members")
+    public CompletableFuture<List<MemberTeamDto>> searchMemberV1(MemberSearchCondition condition) {
+        return CompletableFuture.supplyAsync(() -> memberRepository.search(condition), bulkheadExecutor);
+    }
+
+    @GetMapping("/async/v2/members")
+    public CompletableFuture<Page<MemberTeamDto>> searchMemberV2(MemberSearchCondition condition, Pageable pageable) {
+        return CompletableFuture.supplyAsync(() -> memberRepository.searchPageSimple(condition, pageable), bulkheadExecutor);
+    }
+
+    @GetMapping("/async/v3/members")
+    public CompletableFuture<Page<MemberTeamDto>> searchMemberV3(MemberSearchCondition condition, Pageable pageable) {
+        return CompletableFuture.supplyAsync(() -> memberRepository.searchPageComplex(condition, pageable), bulkheadExecutor);
+    }
+
+    // 벌크헤드 큐가 가득 차면 기다리게 하지 않고 503 으로 돌려보낸다
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<Void> rejected() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .build();
+    }
+}
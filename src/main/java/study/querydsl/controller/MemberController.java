@@ -1,33 +1,117 @@
 package study.querydsl.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import study.querydsl.dto.MemberAutocompleteDto;
+import study.querydsl.dto.MemberCursorPage;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.InvalidSearchException;
 import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.UsernameIndex;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequiredArgsConstructor
 public class MemberController {
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+    private static final int MAX_AUTOCOMPLETE_SIZE = 50;
+
     private final MemberRepository memberRepository;
+    private final ObjectMapper objectMapper;
+    private final MemberETags memberETags;
+    private final UsernameIndex usernameIndex;
 
+    // 데이터 버전과 조건이 같으면 304 (checkNotModified 가 응답 상태와 ETag 헤더를 채운다)
     @GetMapping("/v1/members")
-    public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition) {
+    public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition, WebRequest request) {
+        if (memberETags.checkNotModified(request, "v1", condition)) {
+            return null;
+        }
         return memberRepository.search(condition);
     }
 
+    // 화면 하나에서 쓰는 여러 검색을 한 번의 요청으로 처리한다 (결과는 조건 순서대로)
+    @PostMapping("/members/search/batch")
+    public List<List<MemberTeamDto>> searchMemberBatch(@RequestBody List<MemberSearchCondition> conditions) {
+        return memberRepository.searchBatch(conditions);
+    }
+
+    // 한 줄에 한 건씩(NDJSON) 조회되는 대로 바로 내려보낸다
+    @GetMapping("/v1/members/export")
+    public void exportMembersV1(MemberSearchCondition condition, HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        OutputStream out = response.getOutputStream();
+        try {
+            memberRepository.searchForEach(condition, dto -> {
+                try {
+                    out.write(objectMapper.writeValueAsBytes(dto));
+                    out.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+    }
+
     @GetMapping("/v2/members")
-    public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable) {
+    public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable, WebRequest request) {
+        if (memberETags.checkNotModified(request, "v2", condition, pageable)) {
+            return null;
+        }
         return memberRepository.searchPageSimple(condition, pageable);
     }
 
     @GetMapping("/v3/members")
-    public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable) {
+    public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable, WebRequest request) {
+        if (memberETags.checkNotModified(request, "v3", condition, pageable)) {
+            return null;
+        }
         return memberRepository.searchPageComplex(condition, pageable);
     }
+
+    @GetMapping("/v4/members")
+    public MemberCursorPage searchMemberV4(MemberSearchCondition condition,
+                                           @RequestParam(required = false) String cursor,
+                                           @RequestParam(defaultValue = "20") int size) {
+        // size < 1 은 리포지토리가 거절한다 (400)
+        return memberRepository.searchByCursor(condition, cursor, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+    }
+
+    // DB 를 거치지 않고 메모리 인덱스에서 username 접두사로 찾는다
+    @GetMapping("/members/autocomplete")
+    public List<MemberAutocompleteDto> autocomplete(@RequestParam String prefix,
+                                                    @RequestParam(defaultValue = "10") int size) {
+        if (!StringUtils.hasText(prefix)) {
+            return List.of();
+        }
+        return usernameIndex.search(prefix, Math.min(Math.max(size, 1), MAX_AUTOCOMPLETE_SIZE));
+    }
+
+    // 잘못된 cursor, size, 조건 개수 초과만 400. 다른 IllegalArgumentException 은 서버 오류로 남긴다
+    @ExceptionHandler(InvalidSearchException.class)
+    public ResponseEntity<Map<String, String>> badRequest(InvalidSearchException e) {
+        return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+    }
 }
@@ -0,0 +1,58 @@
+package study.querydsl.controller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.web.context.request.WebRequest;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.DataVersion;
+import study.querydsl.repository.MemberSearchKey;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * 조회 API 의 ETag = (기동 시점 epoch, 데이터 버전, 정규화한 검색 조건 + 페이지) 해시.
+ * DB 를 보지 않고 만들 수 있으므로 If-None-Match 가 맞으면 쿼리 없이 304 를 돌려준다.
+ * replica(spring.datasource.replica.url)를 쓰면 끈다. DataVersion 은 primary 커밋 시점에 오르는데
+ * 고정되지 않은 조회는 지연된 replica 를 읽으므로, 낡은 내용에 새 버전의 ETag 가 붙을 수 있다.
+ */
+@Component
+public class MemberETags {
+    // 재기동하면 DataVersion 이 0 부터 다시 시작하므로 이전 프로세스의 ETag 와 겹치지 않게 한다
+    private final String epoch = UUID.randomUUID().toString().substring(0, 8);
+    private final DataVersion dataVersion;
+    private final boolean enabled;
+
+    public MemberETags(DataVersion dataVersion, @Value("${spring.datasource.replica.url:}") String replicaUrl) {
+        this.dataVersion = dataVersion;
+        this.enabled = !StringUtils.hasText(replicaUrl);
+    }
+
+    /**
+     * ETag 가 맞으면 true (304). 꺼져 있으면 ETag 없이 항상 false.
+     */
+    public boolean checkNotModified(WebRequest request, String resource, MemberSearchCondition condition) {
+        return checkNotModified(request, resource, condition, Pageable.unpaged());
+    }
+
+    public boolean checkNotModified(WebRequest request, String resource, MemberSearchCondition condition, Pageable pageable) {
+        return enabled && request.checkNotModified(of(resource, condition, pageable));
+    }
+
+    public String of(String resource, MemberSearchCondition condition) {
+        return of(resource, condition, Pageable.unpaged());
+    }
+
+    // 버전은 쿼리보다 먼저 읽는다. 그 사이 변경이 있으면 낡은 버전이 붙으므로 다음 요청에서 다시 조회된다
+    public String of(String resource, MemberSearchCondition condition, Pageable pageable) {
+        String page = pageable.isPaged()
+                ? pageable.getPageNumber() + ":" + pageable.getPageSize() + ":" + pageable.getSort()
+                : "unpaged";
+        String key = resource + "|" + MemberSearchKey.of(condition) + "|" + page;
+        String hash = DigestUtils.md5DigestAsHex(key.getBytes(StandardCharsets.UTF_8));
+        return "\"" + epoch + "-" + dataVersion.current() + "-" + hash + "\"";
+    }
+}
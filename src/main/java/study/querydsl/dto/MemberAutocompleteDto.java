@@ -0,0 +1,16 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class MemberAutocompleteDto {
+    private Long memberId;
+    private String username;
+
+    public MemberAutocompleteDto(Long memberId, String username) {
+        this.memberId = memberId;
+        this.username = username;
+    }
+}
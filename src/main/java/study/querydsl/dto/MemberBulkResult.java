@@ -0,0 +1,17 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+public class MemberBulkResult {
+    // id 구간(chunk)별로 반영된 row 수 (실행 순서대로)
+    private final List<Long> chunkRows;
+    private final long totalRows;
+
+    public MemberBulkResult(List<Long> chunkRows) {
+        this.chunkRows = chunkRows;
+        this.totalRows = chunkRows.stream().mapToLong(Long::longValue).sum();
+    }
+}
@@ -0,0 +1,19 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+public class MemberCursorPage {
+    private final List<MemberTeamDto> content;
+    // 다음 페이지 요청 시 그대로 돌려보내는 값 (마지막 페이지면 null)
+    private final String nextCursor;
+    private final boolean hasNext;
+
+    public MemberCursorPage(List<MemberTeamDto> content, String nextCursor) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+        this.hasNext = nextCursor != null;
+    }
+}
@@ -1,5 +1,6 @@
 package study.querydsl.dto;
 
+import com.querydsl.core.annotations.QueryProjection;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
@@ -9,7 +10,7 @@ public class MemberDto {
     private String username;
     private int age;
 
-//    @QueryProjection
+    @QueryProjection
     public MemberDto(String username, int age) {
         this.username = username;
         this.age = age;
@@ -1,5 +1,6 @@
 package study.querydsl.dto;
 
+import com.querydsl.core.annotations.QueryProjection;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
@@ -12,6 +13,8 @@ public class MemberTeamDto {
     private Long teamId;
     private String teamName;
 
+    // 생성된 QMemberTeamDto 가 생성자를 직접 호출한다 (리플렉션으로 필드를 채우지 않음)
+    @QueryProjection
     public MemberTeamDto(Long memberId, String username, int age, Long teamId, String teamName) {
         this.memberId = memberId;
         this.username = username;
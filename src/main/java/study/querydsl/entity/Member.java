@@ -1,15 +1,29 @@
 package study.querydsl.entity;
 
 import lombok.*;
+import study.querydsl.repository.DataVersionListener;
+import study.querydsl.repository.UsernameIndexListener;
 
 import javax.persistence.*;
 
 @Entity
+@Table(indexes = {
+        // MemberSearchCondition 의 username, ageGoe/ageLoe 조건과 team 조인용
+        @Index(name = "idx_member_username", columnList = "username"),
+        @Index(name = "idx_member_age", columnList = "age"),
+        @Index(name = "idx_member_team_id", columnList = "team_id")
+})
+@EntityListeners({DataVersionListener.class, UsernameIndexListener.class})
+// FetchPlan.TEAM_ENTITY_GRAPH, MemberRepository.findWithTeamByUsername
+@NamedEntityGraph(name = "Member.team", attributeNodes = @NamedAttributeNode("team"))
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "username", "age"})
 public class Member {
-    @Id @GeneratedValue
+    // pooled 옵티마이저: 시퀀스 한 번 호출로 id 50개를 확보한다 (MemberBulkLoader 의 JDBC 모드도 같은 규칙을 따른다)
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_seq_generator")
+    @SequenceGenerator(name = "member_seq_generator", sequenceName = "member_seq", allocationSize = 50)
     @Column(name = "member_id")
     private Long id;
     private String username;
@@ -0,0 +1,55 @@
+package study.querydsl.monitor;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 요청마다 실행된 SQL 문장 수를 세서 예산(max-statements)을 넘거나
+ * 같은 형태의 문장이 repeat-threshold 번 이상 반복되면(N+1 의심) 경고 로그와 member.sql.budget.exceeded 메트릭을 남긴다.
+ */
+@Slf4j
+@Component
+public class StatementBudgetFilter extends OncePerRequestFilter {
+    private final MeterRegistry meterRegistry;
+    private final int maxStatements;
+    private final int repeatThreshold;
+
+    public StatementBudgetFilter(MeterRegistry meterRegistry,
+                                 @Value("${member.statement-budget.max-statements:20}") int maxStatements,
+                                 @Value("${member.statement-budget.repeat-threshold:5}") int repeatThreshold) {
+        this.meterRegistry = meterRegistry;
+        this.maxStatements = maxStatements;
+        this.repeatThreshold = repeatThreshold;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        StatementStats previous = StatementCounter.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            check(request.getMethod() + " " + request.getRequestURI(), StatementCounter.stop(previous));
+        }
+    }
+
+    void check(String requestName, StatementStats stats) {
+        if (stats.getCount() > maxStatements) {
+            log.warn("SQL 문장 예산 초과: {} ({} > {})", requestName, stats.getCount(), maxStatements);
+            meterRegistry.counter("member.sql.budget.exceeded", "reason", "count").increment();
+        }
+        if (stats.getMaxRepeat() >= repeatThreshold) {
+            log.warn("N+1 의심: {} 같은 문장 {}번 반복 [{}]", requestName, stats.getMaxRepeat(), stats.getMostRepeatedShape());
+            meterRegistry.counter("member.sql.budget.exceeded", "reason", "repeat").increment();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package study.querydsl.monitor;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+
+/**
+ * p6spy 리스너. 현재 스레드에 열린 {@link StatementStats} 범위가 있으면 실행된 문장을 센다.
+ * 범위는 StatementBudgetFilter(요청) 나 테스트가 start/stop 으로 연다. 다른 스레드(비동기 풀)에서 실행된 문장은 세지 않는다.
+ */
+@Component
+public class StatementCounter extends SimpleJdbcEventListener {
+    private static final ThreadLocal<StatementStats> CURRENT = new ThreadLocal<>();
+
+    // 이미 열린 범위가 있으면 새 범위로 바꾸고 이전 범위를 돌려준다 (stop 에 넘겨서 복원)
+    public static StatementStats start() {
+        StatementStats previous = CURRENT.get();
+        CURRENT.set(new StatementStats());
+        return previous;
+    }
+
+    public static StatementStats current() {
+        return CURRENT.get();
+    }
+
+    public static StatementStats stop(StatementStats previous) {
+        StatementStats stats = CURRENT.get();
+        if (previous != null) {
+            CURRENT.set(previous);
+        } else {
+            CURRENT.remove();
+        }
+        return stats;
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        StatementStats stats = CURRENT.get();
+        if (stats != null) {
+            stats.record(statementInformation.getSql());
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package study.querydsl.monitor;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 한 범위(요청, 테스트)에서 실행된 SQL 문장 수와 문장 형태(shape)별 반복 횟수.
+ * PreparedStatement 는 파라미터가 ? 로 남으므로 같은 형태의 N+1 쿼리는 같은 shape 로 모인다.
+ */
+public class StatementStats {
+    private int count;
+    private final Map<String, Integer> shapes = new HashMap<>();
+
+    void record(String sql) {
+        count++;
+        shapes.merge(shapeOf(sql), 1, Integer::sum);
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    // 가장 많이 반복된 shape 의 실행 횟수 (없으면 0)
+    public int getMaxRepeat() {
+        return shapes.values().stream().mapToInt(Integer::intValue).max().orElse(0);
+    }
+
+    public String getMostRepeatedShape() {
+        return shapes.entrySet().stream()
+                .max(Map.Entry.comparingByValue())
+                .map(Map.Entry::getKey)
+                .orElse(null);
+    }
+
+    public void reset() {
+        count = 0;
+        shapes.clear();
+    }
+
+    // use_sql_comments 주석과 공백 차이는 무시한다
+    private static String shapeOf(String sql) {
+        return sql.replaceAll("/\\*.*?\\*/", " ").replaceAll("\\s+", " ").trim();
+    }
+}
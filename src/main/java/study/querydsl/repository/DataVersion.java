@@ -0,0 +1,39 @@
+package study.querydsl.repository;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Member/Team 데이터가 바뀔 때마다 올라가는 버전 값.
+ * 캐시된 조회 결과는 만들 당시의 버전과 현재 버전이 같을 때만 재사용한다.
+ */
+@Component
+public class DataVersion {
+    private final AtomicLong version = new AtomicLong();
+
+    public long current() {
+        return version.get();
+    }
+
+    /**
+     * 변경 즉시 한 번, 트랜잭션이 끝난 뒤 한 번 더 올린다.
+     * 커밋 전에 다른 트랜잭션이 읽어서 캐시한 값도 커밋 이후에는 무효가 된다.
+     */
+    public void bump() {
+        version.incrementAndGet();
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+                && !TransactionSynchronizationManager.hasResource(this)) {
+            TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(DataVersion.this);
+                    version.incrementAndGet();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package study.querydsl.repository;
+
+import lombok.RequiredArgsConstructor;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * Member, Team 엔티티에 걸어두는 JPA 리스너. (SpringBeanContainer 가 생성하므로 빈 주입이 가능)
+ * JPQL bulk 연산은 리스너를 타지 않으므로 호출하는 쪽에서 직접 {@link DataVersion#bump()} 해야 한다.
+ */
+@RequiredArgsConstructor
+public class DataVersionListener {
+    private final DataVersion dataVersion;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        dataVersion.bump();
+    }
+}
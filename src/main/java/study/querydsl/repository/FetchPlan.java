@@ -0,0 +1,18 @@
+package study.querydsl.repository;
+
+/**
+ * Member 엔티티 조회 시 연관(team, team.members)을 어떻게 가져올지.
+ * LAZY 를 제외하면 결과 건수와 상관없이 정해진 횟수의 쿼리로 객체 그래프를 채운다.
+ */
+public enum FetchPlan {
+    /** 지연 로딩 그대로 (team 을 건드리면 팀마다 쿼리 1번) */
+    LAZY,
+    /** team 을 fetch join (쿼리 1번) */
+    TEAM_FETCH_JOIN,
+    /** 엔티티 그래프 "Member.team" 을 fetchgraph 힌트로 적용 (쿼리 1번) */
+    TEAM_ENTITY_GRAPH,
+    /** 결과의 team id 를 모아 in 절로 한 번에 로딩 (쿼리 1번 + team 512개당 1번) */
+    TEAM_BATCH,
+    /** TEAM_BATCH 와 같되 각 team 의 members 컬렉션까지 fetch join 으로 채운다 */
+    TEAM_MEMBERS_BATCH
+}
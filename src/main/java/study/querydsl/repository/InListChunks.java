@@ -0,0 +1,39 @@
+package study.querydsl.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * in (...) 조회용 id 분할.
+ * 중복/null 을 빼고 CHUNK_SIZE 개씩 나눈다.
+ * 묶음을 2의 거듭제곱 크기로 채우는 것은 hibernate.query.in_clause_parameter_padding 설정이 맡으므로
+ * 파라미터 개수가 1, 2, 4, ..., 512 로만 나오고 Hibernate/H2 의 쿼리 플랜 캐시 항목이 10개를 넘지 않는다.
+ */
+final class InListChunks {
+    static final int CHUNK_SIZE = 512;
+
+    private InListChunks() {
+    }
+
+    static List<List<Long>> of(Collection<Long> ids) {
+        Set<Long> distinct = new LinkedHashSet<>(ids);
+        distinct.remove(null);
+
+        List<List<Long>> chunks = new ArrayList<>();
+        List<Long> chunk = new ArrayList<>(CHUNK_SIZE);
+        for (Long id : distinct) {
+            chunk.add(id);
+            if (chunk.size() == CHUNK_SIZE) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>(CHUNK_SIZE);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+}
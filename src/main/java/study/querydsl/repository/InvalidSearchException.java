@@ -0,0 +1,16 @@
+package study.querydsl.repository;
+
+/**
+ * 클라이언트가 보낸 검색 요청 자체가 잘못된 경우 (잘못된 cursor, 페이지 크기, 조건 개수 초과).
+ * 컨트롤러는 이 예외만 400 으로 바꾸고, 그 밖의 IllegalArgumentException 은 서버 오류로 둔다.
+ */
+public class InvalidSearchException extends IllegalArgumentException {
+
+    public InvalidSearchException(String message) {
+        super(message);
+    }
+
+    public InvalidSearchException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
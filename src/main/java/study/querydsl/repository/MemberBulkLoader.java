@@ -0,0 +1,147 @@
+package study.querydsl.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 팀 N 개, 회원 M 개를 대량으로 넣는 초기 데이터 로더.
+ * 회원 i 는 "member" + i, 나이 i % 100, 팀 (i % N) 으로 들어간다.
+ */
+@Component
+@RequiredArgsConstructor
+public class MemberBulkLoader {
+    // Member, Team 의 @SequenceGenerator allocationSize 와 같아야 한다
+    private static final int ID_ALLOCATION_SIZE = 50;
+    // 파라미터: 첫 id, 첫 회원 번호 x3, 팀 id 배열, 팀 수, 행 수 - 1
+    private static final String INSERT_MEMBERS_SQL = "insert into member (member_id, username, age, team_id)"
+            + " select ? + x, concat('member', ? + x), mod(? + x, 100), array_get(cast(? as bigint array), mod(? + x, ?) + 1)"
+            + " from system_range(0, ?)";
+
+    private final EntityManager em;
+    private final JdbcTemplate jdbcTemplate;
+    private final DataVersion dataVersion;
+    private final TeamNameResolver teamNameResolver;
+    private final UsernameIndex usernameIndex;
+
+    public enum Mode {
+        /** persist + batchSize 마다 flush/clear */
+        JPA,
+        /** 엔티티를 거치지 않고 INSERT ... SELECT FROM SYSTEM_RANGE 로 DB 안에서 생성 */
+        JDBC
+    }
+
+    @Transactional
+    public void loadWithJpa(int teamCount, int memberCount, int batchSize) {
+        validate(teamCount, batchSize);
+        List<Long> teamIds = new ArrayList<>();
+        for (int i = 0; i < teamCount; i++) {
+            Team team = new Team(teamName(i));
+            em.persist(team);
+            teamIds.add(team.getId());
+        }
+        em.flush();
+        em.clear();
+
+        for (int i = 0; i < memberCount; i++) {
+            // changeTeam 을 쓰면 Team.members 컬렉션에 계속 쌓이므로 FK 만 세팅한다
+            Member member = new Member("member" + i, i % 100);
+            member.setTeam(em.getReference(Team.class, teamIds.get(i % teamCount)));
+            em.persist(member);
+            if ((i + 1) % batchSize == 0) {
+                em.flush();
+                em.clear();
+            }
+        }
+    }
+
+    /**
+     * 회원은 batchSize 건마다 INSERT ... SELECT FROM SYSTEM_RANGE 한 문장으로 DB 안에서 만든다 (행마다 파라미터를 보내지 않는다).
+     * id 는 묶음마다 시퀀스 한 번 조회로 미리 잡아 둔다. 문장 단위로 auto-commit 되므로 트랜잭션을 걸지 않는다.
+     */
+    public void loadWithJdbc(int teamCount, int memberCount, int batchSize) {
+        validate(teamCount, batchSize);
+        Long[] teamIdByIndex = new Long[teamCount];
+        int index = 0;
+        for (long[] run : reserveIds("team_seq", teamCount)) {
+            for (long id = run[0]; id <= run[1]; id++) {
+                teamIdByIndex[index++] = id;
+            }
+        }
+        jdbcTemplate.batchUpdate("insert into team (id, name) values (?, ?)", new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setLong(1, teamIdByIndex[i]);
+                ps.setString(2, teamName(i));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return teamCount;
+            }
+        });
+
+        for (int from = 0; from < memberCount; from += batchSize) {
+            int start = from;
+            for (long[] run : reserveIds("member_seq", Math.min(batchSize, memberCount - from))) {
+                int size = (int) (run[1] - run[0] + 1);
+                jdbcTemplate.update(INSERT_MEMBERS_SQL, run[0], start, start, teamIdByIndex, start, teamCount, size - 1);
+                start += size;
+            }
+        }
+
+        // 엔티티 리스너를 거치지 않았으므로 직접 무효화한다
+        dataVersion.bump();
+        teamNameResolver.invalidate();
+        usernameIndex.invalidate();
+    }
+
+    /**
+     * count 개의 id 를 시퀀스 한 번 조회로 잡는다. Hibernate pooled 옵티마이저처럼 시퀀스 값 hi 하나당 hi - 49 ~ hi 구간을 쓰므로
+     * 같은 시퀀스를 쓰는 JPA persist 와 id 가 겹치지 않는다. 다른 세션이 중간에 값을 가져가면 구간이 여러 개로 나뉜다.
+     *
+     * @return [첫 id, 마지막 id] 구간들 (합계 count 개)
+     */
+    private List<long[]> reserveIds(String sequenceName, int count) {
+        List<long[]> runs = new ArrayList<>();
+        long[] run = null;
+        int remaining = count;
+        // 시퀀스의 첫 값(1)은 id 하나만 주므로 모자라면 한 번 더 조회한다
+        while (remaining > 0) {
+            int blocks = (remaining + ID_ALLOCATION_SIZE - 1) / ID_ALLOCATION_SIZE;
+            for (long hi : jdbcTemplate.queryForList(
+                    "select next value for " + sequenceName + " from system_range(1, ?)", Long.class, blocks)) {
+                long lo = Math.max(1, hi - ID_ALLOCATION_SIZE + 1);
+                long last = Math.min(hi, lo + remaining - 1);
+                if (run != null && run[1] + 1 == lo) {
+                    run[1] = last;
+                } else {
+                    run = new long[]{lo, last};
+                    runs.add(run);
+                }
+                remaining -= (int) (last - lo + 1);
+            }
+        }
+        return runs;
+    }
+
+    private static void validate(int teamCount, int batchSize) {
+        if (teamCount < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("teamCount, batchSize 는 1 이상이어야 합니다");
+        }
+    }
+
+    private static String teamName(int index) {
+        return index < 26 ? "team" + (char) ('A' + index) : "team" + index;
+    }
+}
@@ -0,0 +1,79 @@
+package study.querydsl.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import study.querydsl.dto.MemberSearchCondition;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 검색 조건별 count 쿼리 결과 캐시.
+ * 최대 크기(LRU), TTL, {@link DataVersion} 이 모두 맞을 때만 DB 를 거치지 않고 돌려준다.
+ * replica 를 쓰면 캐시하지 않는다. 지연된 replica 에서 센 값이 새 버전으로 TTL 동안 남기 때문이다.
+ */
+@Component
+public class MemberCountCache {
+    private final DataVersion dataVersion;
+    private final long ttlNanos;
+    private final Map<List<Object>, Entry> entries;
+    private final boolean enabled;
+
+    public MemberCountCache(DataVersion dataVersion,
+                            @Value("${member.count-cache.max-size:1000}") int maxSize,
+                            @Value("${member.count-cache.ttl:30s}") Duration ttl,
+                            @Value("${spring.datasource.replica.url:}") String replicaUrl) {
+        this.dataVersion = dataVersion;
+        this.enabled = !StringUtils.hasText(replicaUrl);
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public long get(MemberSearchCondition condition, Supplier<Long> countQuery) {
+        if (!enabled) {
+            return countQuery.get();
+        }
+        List<Object> key = MemberSearchKey.of(condition);
+        long version = dataVersion.current();
+        long now = System.nanoTime();
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.version == version && now - entry.createdAt < ttlNanos) {
+                return entry.count;
+            }
+        }
+        // 쿼리 실행 중에는 락을 잡지 않는다. 시작 시점의 버전으로 저장해서 그 사이 변경이 있으면 다음 조회에서 버려진다.
+        long count = countQuery.get();
+        synchronized (entries) {
+            entries.put(key, new Entry(count, version, now));
+        }
+        return count;
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    private static class Entry {
+        private final long count;
+        private final long version;
+        private final long createdAt;
+
+        private Entry(long count, long version, long createdAt) {
+            this.count = count;
+            this.version = version;
+            this.createdAt = createdAt;
+        }
+    }
+}
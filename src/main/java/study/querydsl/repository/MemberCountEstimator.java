@@ -0,0 +1,107 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.CaseBuilder;
+import com.querydsl.core.types.dsl.NumberExpression;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * 회원 수가 threshold 이상이면 정확한 count 대신 추정치를 돌려준다.
+ * 전체 행 수는 H2 테이블 통계(ROW_COUNT_ESTIMATE)에서, 조건의 선택도는 [min(id), max(id)] 전체에 고르게 흩어진
+ * 임의 id 범위 SAMPLE_RANGES 개(합계 약 sampleSize 건)에서 구한다. 앞쪽 id 만 보면 입력 순서와 엮인 조건
+ * (예: 나중에 만든 팀)이 0 에 가깝게 추정되기 때문이다.
+ * 표본은 PK 인덱스 구간만 읽으므로 전체 테이블 크기와 상관없이 비용이 일정하다.
+ */
+@Component
+public class MemberCountEstimator {
+    private static final String ROW_COUNT_ESTIMATE_SQL = "select row_count_estimate from information_schema.tables"
+            + " where table_schema = schema() and table_name = 'MEMBER'";
+    private static final int SAMPLE_RANGES = 10;
+
+    private final JPAQueryFactory queryFactory;
+    private final JdbcTemplate jdbcTemplate;
+    private final long threshold;
+    private final int sampleSize;
+
+    public MemberCountEstimator(EntityManager em, JdbcTemplate jdbcTemplate,
+                                @Value("${member.estimated-count.threshold:100000}") long threshold,
+                                @Value("${member.estimated-count.sample-size:10000}") int sampleSize) {
+        this.queryFactory = new JPAQueryFactory(em);
+        this.jdbcTemplate = jdbcTemplate;
+        this.threshold = threshold;
+        this.sampleSize = sampleSize;
+    }
+
+    /**
+     * @param predicates 검색 조건 (member 컬럼만 참조해야 한다)
+     * @param exactCount threshold 미만이거나 통계를 읽을 수 없을 때 쓰는 정확한 count
+     */
+    public long count(Predicate[] predicates, LongSupplier exactCount) {
+        long tableRows = tableRowCount();
+        if (tableRows < threshold) {
+            return exactCount.getAsLong();
+        }
+        if (predicates.length == 0) {
+            return tableRows;
+        }
+
+        Tuple idRange = queryFactory
+                .select(member.id.min(), member.id.max())
+                .from(member)
+                .fetchOne();
+        Long minId = idRange == null ? null : idRange.get(member.id.min());
+        Long maxId = idRange == null ? null : idRange.get(member.id.max());
+        if (minId == null || maxId == null) {
+            return exactCount.getAsLong();
+        }
+
+        // [minId, maxId] 를 SAMPLE_RANGES 개 구간으로 나누고 구간마다 임의 위치의 id 범위 하나를 읽는다
+        long span = maxId - minId + 1;
+        long stride = Math.max(1, span / SAMPLE_RANGES);
+        long width = Math.max(1, Math.min(stride, (long) Math.ceil((double) span * sampleSize / tableRows / SAMPLE_RANGES)));
+        BooleanBuilder ranges = new BooleanBuilder();
+        for (long from = minId; from <= maxId; from += stride) {
+            long lo = from + ThreadLocalRandom.current().nextLong(stride - width + 1);
+            ranges.or(member.id.between(lo, lo + width - 1));
+        }
+
+        NumberExpression<Long> matched = new CaseBuilder()
+                .when(ExpressionUtils.allOf(predicates)).then(1L)
+                .otherwise(0L)
+                .sum();
+        Tuple sample = queryFactory
+                .select(member.count(), matched)
+                .from(member)
+                .where(ranges)
+                .fetchOne();
+        Long sampled = sample == null ? null : sample.get(member.count());
+        Long matches = sample == null ? null : sample.get(matched);
+        if (sampled == null || sampled == 0) {
+            return exactCount.getAsLong();
+        }
+        return Math.round((double) (matches != null ? matches : 0) * tableRows / sampled);
+    }
+
+    // 통계를 읽을 수 없는 DB 면 -1 (항상 정확한 count)
+    long tableRowCount() {
+        try {
+            Long rows = jdbcTemplate.queryForObject(ROW_COUNT_ESTIMATE_SQL, Long.class);
+            return rows != null ? rows : -1;
+        } catch (DataAccessException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package study.querydsl.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * keyset 페이징용 커서. 클라이언트에는 마지막으로 읽은 member.id 를 감싼 불투명 문자열로만 노출한다.
+ */
+final class MemberCursor {
+
+    private MemberCursor() {
+    }
+
+    static String encode(Long lastMemberId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(String.valueOf(lastMemberId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Long decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            return Long.valueOf(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidSearchException("잘못된 cursor 값입니다: " + cursor, e);
+        }
+    }
+}
@@ -3,28 +3,46 @@ package study.querydsl.repository;
 import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.types.Projections;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.hibernate.HibernateQuery;
+import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.graph.GraphSemantic;
+import org.hibernate.jpa.QueryHints;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
 
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import static study.querydsl.entity.QMember.member;
 import static study.querydsl.entity.QTeam.team;
 
 @Repository
 public class MemberJPARepository {
+    private static final int STATELESS_FETCH_SIZE = 500;
+
     private final EntityManager em;
     private final JPAQueryFactory queryFactory;
+    private final SessionFactory sessionFactory;
 
-    public MemberJPARepository(EntityManager em) {
+    public MemberJPARepository(EntityManager em, EntityManagerFactory emf) {
         this.em = em;
         this.queryFactory = new JPAQueryFactory(em);
+        this.sessionFactory = emf.unwrap(SessionFactory.class);
     }
 
     public void save(Member member) {
@@ -40,10 +58,19 @@ public class MemberJPARepository {
         return em.createQuery("select m from Member m", Member.class).getResultList();
     }
 
+    /**
+     * 단독으로 호출하면 자체 readOnly 트랜잭션에서 읽으므로 결과 엔티티는 읽기 전용이고, 수정해도 DB 에 반영되지 않는다.
+     * 쓰기 트랜잭션 안에서 호출하면 그 트랜잭션에 참여하므로 결과 엔티티는 변경 감지 대상이다.
+     * findByUsername_Querydsl 도 같다.
+     */
+    @Transactional(readOnly = true)
     public List<Member> findAll_Querydsl() {
-        return queryFactory
-                .selectFrom(member)
-                .fetch();
+        return findAll_Querydsl(FetchPlan.LAZY);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Member> findAll_Querydsl(FetchPlan fetchPlan) {
+        return fetch(queryFactory.selectFrom(member), fetchPlan);
     }
 
     public List<Member> findByUsername(String username) {
@@ -52,13 +79,90 @@ public class MemberJPARepository {
                 .getResultList();
     }
 
+    @Transactional(readOnly = true)
     public List<Member> findByUsername_Querydsl(String username) {
+        return findByUsername_Querydsl(username, FetchPlan.LAZY);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Member> findByUsername_Querydsl(String username, FetchPlan fetchPlan) {
+        return fetch(queryFactory
+                .selectFrom(member)
+                .where(member.username.eq(username)), fetchPlan);
+    }
+
+    /**
+     * 조회 전용. readOnly 힌트로 가져온 엔티티는 스냅샷을 만들지 않고 flush 때 변경 감지도 하지 않는다.
+     * 쓰기 트랜잭션 안에서 호출해도 마찬가지이므로, 결과 엔티티를 수정해도 DB 에 반영되지 않는다.
+     */
+    @Transactional(readOnly = true)
+    public List<Member> findAll_ReadOnly() {
+        return queryFactory
+                .selectFrom(member)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .fetch();
+    }
+
+    @Transactional(readOnly = true)
+    public List<Member> findByUsername_ReadOnly(String username) {
         return queryFactory
                 .selectFrom(member)
                 .where(member.username.eq(username))
+                .setHint(QueryHints.HINT_READONLY, true)
                 .fetch();
     }
 
+    /**
+     * 대량 조회용. StatelessSession 으로 읽어서 영속성 컨텍스트(1차 캐시)에 아무것도 남기지 않는다.
+     * 별도 커넥션으로 커밋된 데이터만 읽고, 넘겨받은 Member 의 team 같은 지연 로딩 연관은 초기화할 수 없다.
+     */
+    public void forEach_Stateless(Consumer<Member> action) {
+        try (StatelessSession session = sessionFactory.openStatelessSession();
+             ScrollableResults results = new HibernateQuery<Member>(session)
+                     .select(member)
+                     .from(member)
+                     .orderBy(member.id.asc())
+                     .setFetchSize(STATELESS_FETCH_SIZE)
+                     .scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next()) {
+                action.accept((Member) results.get(0));
+            }
+        }
+    }
+
+    private List<Member> fetch(JPAQuery<Member> query, FetchPlan fetchPlan) {
+        switch (fetchPlan) {
+            case TEAM_FETCH_JOIN:
+                return query.leftJoin(member.team, team).fetchJoin().fetch();
+            case TEAM_ENTITY_GRAPH:
+                return query.setHint(GraphSemantic.FETCH.getJpaHintName(), em.getEntityGraph("Member.team")).fetch();
+            case TEAM_BATCH:
+            case TEAM_MEMBERS_BATCH:
+                List<Member> members = query.fetch();
+                loadTeams(members, fetchPlan == FetchPlan.TEAM_MEMBERS_BATCH);
+                return members;
+            default:
+                return query.fetch();
+        }
+    }
+
+    // 결과 회원들의 team 프록시를 in 절 조회로 한 번에 초기화한다 (영속성 컨텍스트에 올라오면 프록시가 그 엔티티를 가리킨다)
+    private void loadTeams(List<Member> members, boolean withMembers) {
+        Set<Long> teamIds = new LinkedHashSet<>();
+        for (Member findMember : members) {
+            if (findMember.getTeam() != null) {
+                teamIds.add(findMember.getTeam().getId());
+            }
+        }
+        for (List<Long> chunk : InListChunks.of(teamIds)) {
+            JPAQuery<Team> query = queryFactory.selectFrom(team).where(team.id.in(chunk));
+            if (withMembers) {
+                query.distinct().leftJoin(team.members).fetchJoin();
+            }
+            query.fetch();
+        }
+    }
+
     public List<MemberTeamDto> searchByBuilder(MemberSearchCondition condition) {
         BooleanBuilder builder = new BooleanBuilder();
         if (StringUtils.hasText(condition.getUsername())) {
@@ -87,6 +191,7 @@ public class MemberJPARepository {
                 .fetch();
     }
 
+    @Transactional(readOnly = true)
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
         return queryFactory
                 .select(Projections.fields(MemberTeamDto.class,
@@ -0,0 +1,66 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.support.PathsExtractor;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.impl.JPAQuery;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * member 를 from 으로 하는 조회 쿼리 빌더.
+ * projection 이나 조건이 team 별칭을 참조할 때만 team 을 left join 한다.
+ * (member.team.id 는 member 의 FK 컬럼이므로 조인이 필요 없다)
+ */
+final class MemberQueryBuilder<T> {
+    private final Expression<T> projection;
+    private final List<Predicate> predicates = new ArrayList<>();
+
+    private MemberQueryBuilder(Expression<T> projection) {
+        this.projection = projection;
+    }
+
+    static <T> MemberQueryBuilder<T> select(Expression<T> projection) {
+        return new MemberQueryBuilder<>(projection);
+    }
+
+    // null 조건은 무시한다 (where(...) 와 동일)
+    MemberQueryBuilder<T> where(Predicate... predicates) {
+        for (Predicate predicate : predicates) {
+            if (predicate != null) {
+                this.predicates.add(predicate);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * queryFactory.query() 또는 new JPAQuery<>() 에 select/from/join/where 를 채운다.
+     */
+    JPAQuery<T> applyTo(JPAQuery<?> query) {
+        JPAQuery<T> result = query.select(projection).from(member);
+        if (referencesTeam()) {
+            result.leftJoin(member.team, team);
+        }
+        return result.where(predicates.toArray(new Predicate[0]));
+    }
+
+    boolean referencesTeam() {
+        List<Path<?>> paths = new ArrayList<>();
+        projection.accept(PathsExtractor.DEFAULT, paths);
+        for (Predicate predicate : predicates) {
+            predicate.accept(PathsExtractor.DEFAULT, paths);
+        }
+        for (Path<?> path : paths) {
+            if (path.getRoot().equals(team)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
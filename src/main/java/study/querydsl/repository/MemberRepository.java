@@ -1,5 +1,6 @@
 package study.querydsl.repository;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.querydsl.QuerydslPredicateExecutor;
 import study.querydsl.entity.Member;
@@ -10,6 +11,10 @@ public interface MemberRepository extends JpaRepository<Member, Long>, MemberRep
     // select m from Member m where m.username = ?
     List<Member> findByUsername(String username);
 
+    // team 까지 한 번에 (엔티티 그래프 Member.team)
+    @EntityGraph("Member.team")
+    List<Member> findWithTeamByUsername(String username);
+
 
 
 
@@ -2,10 +2,16 @@ package study.querydsl.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import study.querydsl.dto.MemberBulkResult;
+import study.querydsl.dto.MemberCursorPage;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface MemberRepositoryCustom {
     public List<MemberTeamDto> search(MemberSearchCondition condition);
@@ -13,4 +19,34 @@ public interface MemberRepositoryCustom {
     public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable papeable);
 
     public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable papeable);
+
+    // content, count 쿼리를 별도 커넥션에서 동시에 실행 (호출한 트랜잭션의 미커밋 데이터는 보이지 않음)
+    public Page<MemberTeamDto> searchPageConcurrent(MemberSearchCondition condition, Pageable pageable);
+
+    // count 쿼리 없이 size + 1 건을 읽어서 다음 페이지 유무만 알려준다
+    public Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition, Pageable pageable);
+
+    // 회원 수가 많으면 total 을 테이블 통계 + 표본으로 추정한다 (MemberCountEstimator)
+    public Page<MemberTeamDto> searchPageEstimated(MemberSearchCondition condition, Pageable pageable);
+
+    // 여러 검색 조건을 한 커넥션에서 이어서 실행하고 조건 순서대로 결과를 돌려준다
+    public List<List<MemberTeamDto>> searchBatch(List<MemberSearchCondition> conditions);
+
+    // 결과 전체를 List 로 모으지 않고 커서로 한 건씩 넘겨준다 (대량 export 용)
+    public void searchForEach(MemberSearchCondition condition, Consumer<MemberTeamDto> action);
+
+    // offset 대신 member.id 기준 keyset 페이징 (cursor 가 null 이면 첫 페이지)
+    public MemberCursorPage searchByCursor(MemberSearchCondition condition, String cursor, int size);
+
+    // id 목록을 in 절로 한 번에 조회 (입력 순서대로, 없는 id 는 제외)
+    public List<Member> findAllByIds(Collection<Long> ids);
+
+    public List<MemberTeamDto> findAllMemberTeamDtoByIds(Collection<Long> ids);
+
+    // 조건에 맞는 회원을 member.id 구간별로 나눠서 벌크 수정/삭제한다 (영속성 컨텍스트는 자동으로 비움)
+    public MemberBulkResult bulkAddAge(MemberSearchCondition condition, int amount);
+
+    public MemberBulkResult bulkChangeTeam(MemberSearchCondition condition, Long teamId);
+
+    public MemberBulkResult bulkDelete(MemberSearchCondition condition);
 }
@@ -1,122 +1,415 @@
 package study.querydsl.repository;
 
-import com.querydsl.core.QueryResults;
-import com.querydsl.core.types.Projections;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.BooleanExpression;
-import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.jpa.impl.JPAUpdateClause;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
+import study.querydsl.dto.MemberBulkResult;
+import study.querydsl.dto.MemberCursorPage;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
 
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
 
 import static study.querydsl.entity.QMember.member;
 import static study.querydsl.entity.QTeam.team;
 
 public class MemberRepositoryImpl implements MemberRepositoryCustom{
+    private static final int EXPORT_FETCH_SIZE = 500;
+    static final int MAX_BATCH_CONDITIONS = 100;
+    // 벌크 수정/삭제 한 번에 다루는 member.id 구간 크기
+    static final long BULK_ID_RANGE = 10_000;
+
+    private final EntityManager em;
     private final JPAQueryFactory queryFactory;
+    private final TeamNameResolver teamNameResolver;
+    private final MemberSearchQueryTemplates searchTemplates;
+    private final EntityManagerFactory emf;
+    private final MemberCountCache countCache;
+    private final Executor queryExecutor;
+    private final DataVersion dataVersion;
+    private final TransactionTemplate transactionTemplate;
+    private final MemberCountEstimator countEstimator;
+    private final MemberSqlRepository sqlRepository;
+    private final UsernameIndex usernameIndex;
 
-    public MemberRepositoryImpl(EntityManager em) {
+    public MemberRepositoryImpl(EntityManager em, EntityManagerFactory emf, MemberCountCache countCache,
+                                TeamNameResolver teamNameResolver,
+                                @Qualifier("memberQueryExecutor") Executor queryExecutor,
+                                DataVersion dataVersion, PlatformTransactionManager transactionManager,
+                                MemberCountEstimator countEstimator, MemberSqlRepository sqlRepository,
+                                UsernameIndex usernameIndex) {
+        this.em = em;
         this.queryFactory = new JPAQueryFactory(em);
+        this.teamNameResolver = teamNameResolver;
+        this.searchTemplates = new MemberSearchQueryTemplates(teamNameResolver);
+        this.emf = emf;
+        this.countCache = countCache;
+        this.queryExecutor = queryExecutor;
+        this.dataVersion = dataVersion;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.countEstimator = countEstimator;
+        this.sqlRepository = sqlRepository;
+        this.usernameIndex = usernameIndex;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
-        return queryFactory
-                .select(Projections.fields(MemberTeamDto.class,
-                        member.id.as("memberId"),
+        if (useSql("search")) {
+            return sqlRepository.search(condition);
+        }
+        return searchTemplates.fetch(em, condition);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        List<MemberTeamDto> content = MemberQueryBuilder.select(new QMemberTeamDto(
+                        member.id,
                         member.username,
                         member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")
+                        team.id,
+                        team.name
                 ))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
+                .where(conditionPredicates(condition))
+                .applyTo(queryFactory.query())
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
                 .fetch();
+        // fetchResults() 는 content 쿼리의 team 조인을 count 에도 남기므로 count 는 따로 만든다 (조건이 member 컬럼뿐이면 조인 없음)
+        Long total = MemberQueryBuilder.select(member.count())
+                .where(conditionPredicates(condition))
+                .applyTo(queryFactory.query())
+                .fetchOne();
+
+        return new PageImpl<>(content, pageable, total);
     }
 
     @Override
-    public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
-        QueryResults<MemberTeamDto> result = queryFactory
-                .select(Projections.fields(MemberTeamDto.class,
-                        member.id.as("memberId"),
+    @Transactional(readOnly = true)
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        if (useSql("searchPageComplex")) {
+            return sqlRepository.searchPageComplex(condition, pageable);
+        }
+        List<MemberTeamDto> result = searchTemplates.fetch(em, condition, pageable.getOffset(), pageable.getPageSize());
+
+        return PageableExecutionUtils.getPage(result, pageable, () -> countCache.get(condition, () -> searchTemplates.count(em, condition)));
+//        return new PageImpl<>(result, pageable, total);
+    }
+
+    @Override
+    public Page<MemberTeamDto> searchPageConcurrent(MemberSearchCondition condition, Pageable pageable) {
+        CompletableFuture<List<MemberTeamDto>> content = CompletableFuture.supplyAsync(() -> inNewEntityManager(em -> searchTemplates
+                .fetch(em, condition, pageable.getOffset(), pageable.getPageSize())), queryExecutor);
+
+        CompletableFuture<Long> total = CompletableFuture.supplyAsync(() -> countCache.get(condition, () -> inNewEntityManager(em -> searchTemplates
+                .count(em, condition))), queryExecutor);
+
+        return new PageImpl<>(join(content), pageable, join(total));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition, Pageable pageable) {
+        if (useSql("searchSlice")) {
+            return sqlRepository.searchSlice(condition, pageable);
+        }
+        List<MemberTeamDto> content = searchTemplates.fetch(em, condition, pageable.getOffset(), pageable.getPageSize() + 1);
+        boolean hasNext = content.size() > pageable.getPageSize();
+        if (hasNext) {
+            content.remove(content.size() - 1);
+        }
+        return new SliceImpl<>(content, pageable, hasNext);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<MemberTeamDto> searchPageEstimated(MemberSearchCondition condition, Pageable pageable) {
+        List<MemberTeamDto> content = searchTemplates.fetch(em, condition, pageable.getOffset(), pageable.getPageSize());
+        // 추정치가 지금까지 읽은 건수보다 작으면 그 건수를 쓴다. 페이지가 꽉 찼으면 다음 페이지가 있다고 본다
+        long minimum = pageable.getOffset() + content.size() + (content.size() == pageable.getPageSize() ? 1 : 0);
+        return PageableExecutionUtils.getPage(content, pageable, () -> Math.max(minimum, countEstimator.count(
+                conditionPredicates(condition),
+                () -> countCache.get(condition, () -> searchTemplates.count(em, condition)))));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<List<MemberTeamDto>> searchBatch(List<MemberSearchCondition> conditions) {
+        if (conditions.size() > MAX_BATCH_CONDITIONS) {
+            throw new InvalidSearchException("검색 조건은 한 번에 " + MAX_BATCH_CONDITIONS + "개까지 가능합니다");
+        }
+        if (conditions.isEmpty()) {
+            return new ArrayList<>();
+        }
+        // 같은 조건은 한 번만 실행한다 (트랜잭션 하나라 커넥션도 하나만 쓴다)
+        Map<MemberSearchCondition, List<MemberTeamDto>> resultByCondition = new HashMap<>();
+        List<List<MemberTeamDto>> results = new ArrayList<>(conditions.size());
+        for (MemberSearchCondition condition : conditions) {
+            List<MemberTeamDto> result = resultByCondition.computeIfAbsent(condition, c -> searchTemplates.fetch(em, c));
+            results.add(new ArrayList<>(result));
+        }
+        return results;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void searchForEach(MemberSearchCondition condition, Consumer<MemberTeamDto> action) {
+        // DTO 프로젝션이라 영속성 컨텍스트에 엔티티가 쌓이지 않고, fetchSize 단위로만 메모리에 올라온다
+        try (Stream<MemberTeamDto> stream = MemberQueryBuilder.select(new QMemberTeamDto(
+                        member.id,
                         member.username,
                         member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")
+                        team.id,
+                        team.name
                 ))
-                .from(member)
-                .leftJoin(member.team, team)
                 .where(
                         usernameEq(condition.getUsername()),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe())
                 )
-                .offset(pageable.getOffset())
-                .limit(pageable.getPageSize())
-                .fetchResults();
-        List<MemberTeamDto> content = result.getResults();
-        Long total = result.getTotal();
-
-        return new PageImpl<>(content, pageable, total);
+                .applyTo(queryFactory.query())
+                .orderBy(member.id.asc())
+                .setHint(QueryHints.HINT_FETCH_SIZE, EXPORT_FETCH_SIZE)
+                .stream()) {
+            stream.forEach(action);
+        }
     }
 
     @Override
-    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
-        List<MemberTeamDto> result = queryFactory
-                .select(Projections.fields(MemberTeamDto.class,
-                        member.id.as("memberId"),
+    @Transactional(readOnly = true)
+    public MemberCursorPage searchByCursor(MemberSearchCondition condition, String cursor, int size) {
+        if (size < 1) {
+            throw new InvalidSearchException("size 는 1 이상이어야 합니다: " + size);
+        }
+        // 다음 페이지 존재 여부를 count 없이 알기 위해 size + 1 건을 조회
+        List<MemberTeamDto> result = MemberQueryBuilder.select(new QMemberTeamDto(
+                        member.id,
                         member.username,
                         member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")
+                        team.id,
+                        team.name
                 ))
-                .from(member)
-                .leftJoin(member.team, team)
                 .where(
+                        idGt(MemberCursor.decode(cursor)),
                         usernameEq(condition.getUsername()),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe())
                 )
-                .offset(pageable.getOffset())
-                .limit(pageable.getPageSize())
+                .applyTo(queryFactory.query())
+                .orderBy(member.id.asc())
+                .limit(size + 1L)
                 .fetch();
 
-        JPAQuery<Long> count = queryFactory
-                .select(member.count())
+        if (result.size() <= size) {
+            return new MemberCursorPage(result, null);
+        }
+        List<MemberTeamDto> content = result.subList(0, size);
+        return new MemberCursorPage(content, MemberCursor.encode(content.get(size - 1).getMemberId()));
+    }
+
+    @Override
+    public List<Member> findAllByIds(Collection<Long> ids) {
+        Map<Long, Member> byId = new HashMap<>();
+        for (List<Long> chunk : InListChunks.of(ids)) {
+            for (Member findMember : queryFactory
+                    .selectFrom(member)
+                    .where(member.id.in(chunk))
+                    .fetch()) {
+                byId.put(findMember.getId(), findMember);
+            }
+        }
+        return inInputOrder(ids, byId);
+    }
+
+    @Override
+    public List<MemberTeamDto> findAllMemberTeamDtoByIds(Collection<Long> ids) {
+        Map<Long, MemberTeamDto> byId = new HashMap<>();
+        for (List<Long> chunk : InListChunks.of(ids)) {
+            for (MemberTeamDto dto : MemberQueryBuilder.select(new QMemberTeamDto(
+                            member.id,
+                            member.username,
+                            member.age,
+                            team.id,
+                            team.name
+                    ))
+                    .where(member.id.in(chunk))
+                    .applyTo(queryFactory.query())
+                    .fetch()) {
+                byId.put(dto.getMemberId(), dto);
+            }
+        }
+        return inInputOrder(ids, byId);
+    }
+
+    private static <T> List<T> inInputOrder(Collection<Long> ids, Map<Long, T> byId) {
+        List<T> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            T found = byId.get(id);
+            if (found != null) {
+                result.add(found);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public MemberBulkResult bulkAddAge(MemberSearchCondition condition, int amount) {
+        return bulkExecute(condition, range -> queryFactory
+                .update(member)
+                .set(member.age, member.age.add(amount))
+                .where(range)
+                .execute());
+    }
+
+    @Override
+    public MemberBulkResult bulkChangeTeam(MemberSearchCondition condition, Long teamId) {
+        return bulkExecute(condition, range -> {
+            JPAUpdateClause update = queryFactory.update(member);
+            if (teamId == null) {
+                update.setNull(member.team);
+            } else {
+                update.set(member.team, em.getReference(Team.class, teamId));
+            }
+            return update.where(range).execute();
+        });
+    }
+
+    @Override
+    public MemberBulkResult bulkDelete(MemberSearchCondition condition) {
+        if (conditionPredicates(condition).length == 0) {
+            throw new IllegalArgumentException("조건 없이 전체 회원을 삭제할 수 없습니다");
+        }
+        MemberBulkResult result = bulkExecute(condition, range -> queryFactory
+                .delete(member)
+                .where(range)
+                .execute());
+        // 엔티티 리스너를 거치지 않았으므로 자동완성 인덱스는 다시 만든다
+        usernameIndex.invalidate();
+        return result;
+    }
+
+    /**
+     * 조건에 맞는 id 의 min ~ max 를 BULK_ID_RANGE 구간으로 나눠서 구간마다 문장 하나씩 실행한다.
+     * 구간마다 트랜잭션을 따로 잡으므로(바깥 트랜잭션이 있으면 참여) 락이 구간 단위로만 잡혔다 풀린다.
+     * 벌크 연산은 영속성 컨텍스트와 엔티티 리스너를 거치지 않으므로 flush/clear 와 버전 갱신을 직접 한다.
+     */
+    private MemberBulkResult bulkExecute(MemberSearchCondition condition, ToLongFunction<Predicate> statement) {
+        Predicate[] predicates = conditionPredicates(condition);
+        Tuple idRange = transactionTemplate.execute(status -> queryFactory
+                .select(member.id.min(), member.id.max())
                 .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                );
+                .where(predicates)
+                .fetchOne());
 
-        return PageableExecutionUtils.getPage(result, pageable, count::fetchOne);
-//        return new PageImpl<>(result, pageable, total);
+        List<Long> chunkRows = new ArrayList<>();
+        Long minId = idRange == null ? null : idRange.get(member.id.min());
+        Long maxId = idRange == null ? null : idRange.get(member.id.max());
+        if (minId == null) {
+            return new MemberBulkResult(chunkRows);
+        }
+        for (long from = minId; from <= maxId; from += BULK_ID_RANGE) {
+            long to = Math.min(from + BULK_ID_RANGE - 1, maxId);
+            Predicate range = member.id.between(from, to).and(ExpressionUtils.allOf(predicates));
+            chunkRows.add(transactionTemplate.execute(status -> {
+                em.flush();
+                long rows = statement.applyAsLong(range);
+                em.clear();
+                dataVersion.bump();
+                return rows;
+            }));
+        }
+        return new MemberBulkResult(chunkRows);
+    }
+
+    private Predicate[] conditionPredicates(MemberSearchCondition condition) {
+        List<Predicate> predicates = new ArrayList<>();
+        for (Predicate predicate : new Predicate[]{
+                usernameEq(condition.getUsername()),
+                teamNameEq(condition.getTeamName()),
+                ageGoe(condition.getAgeGoe()),
+                ageLoe(condition.getAgeLoe())}) {
+            if (predicate != null) {
+                predicates.add(predicate);
+            }
+        }
+        return predicates.toArray(new Predicate[0]);
+    }
+
+    // querydsl-sql 은 JPA auto flush 를 거치지 않으므로 넘기기 전에 직접 flush 한다
+    private boolean useSql(String method) {
+        if (!sqlRepository.handles(method)) {
+            return false;
+        }
+        em.flush();
+        return true;
+    }
+
+    // 공유 EntityManager 는 스레드에 묶여 있으므로 작업마다 새로 열어서 커넥션을 따로 쓴다
+    private <T> T inNewEntityManager(Function<EntityManager, T> work) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return work.apply(em);
+        } finally {
+            em.close();
+        }
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private BooleanExpression idGt(Long lastMemberId) {
+        return lastMemberId != null ? member.id.gt(lastMemberId) : null;
     }
 
     private BooleanExpression usernameEq(String username) {
         return StringUtils.hasText(username) ? member.username.eq(username) : null;
     }
 
+    // team 조인 대신 member.team_id 로 거른다 (이름에 해당하는 팀이 없으면 빈 in 절 → 1 = 2)
     private BooleanExpression teamNameEq(String teamName) {
-        return StringUtils.hasText(teamName) ? team.name.eq(teamName) : null;
+        return StringUtils.hasText(teamName) ? member.team.id.in(teamNameResolver.resolve(teamName)) : null;
     }
 
     private BooleanExpression ageGoe(Integer ageGoe) {
@@ -0,0 +1,26 @@
+package study.querydsl.repository;
+
+import org.springframework.util.StringUtils;
+import study.querydsl.dto.MemberSearchCondition;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 검색 조건을 캐시 키로 쓸 수 있게 정규화한다.
+ * hasText 기준으로 빈 문자열과 null 을 같은 조건으로 본다 (usernameEq, teamNameEq 와 동일한 규칙).
+ */
+public final class MemberSearchKey {
+
+    private MemberSearchKey() {
+    }
+
+    public static List<Object> of(MemberSearchCondition condition) {
+        return Arrays.asList(
+                StringUtils.hasText(condition.getUsername()) ? condition.getUsername() : null,
+                StringUtils.hasText(condition.getTeamName()) ? condition.getTeamName() : null,
+                condition.getAgeGoe(),
+                condition.getAgeLoe()
+        );
+    }
+}
@@ -0,0 +1,202 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.Param;
+import com.querydsl.jpa.HQLTemplates;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAUtil;
+import org.springframework.util.StringUtils;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 검색 조건에서 값이 있는 필드 조합(shape)은 16가지뿐이므로,
+ * shape 별 JPQL 을 미리 직렬화해 두고 요청마다 파라미터만 바인딩한다.
+ * 같은 JPQL 문자열을 쓰므로 Hibernate 의 쿼리 플랜 캐시도 항상 적중한다.
+ */
+final class MemberSearchQueryTemplates {
+    private static final int HAS_USERNAME = 1;
+    private static final int HAS_TEAM_NAME = 1 << 1;
+    private static final int HAS_AGE_GOE = 1 << 2;
+    private static final int HAS_AGE_LOE = 1 << 3;
+    private static final int SHAPE_COUNT = 1 << 4;
+
+    private static final Param<String> USERNAME_PARAM = new Param<>(String.class, "username");
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final Param<Collection<Long>> TEAM_IDS_PARAM = new Param<>((Class) Collection.class, "teamIds");
+    private static final Param<Integer> AGE_GOE_PARAM = new Param<>(Integer.class, "ageGoe");
+    private static final Param<Integer> AGE_LOE_PARAM = new Param<>(Integer.class, "ageLoe");
+
+    private static final QMemberTeamDto PROJECTION = new QMemberTeamDto(
+            member.id,
+            member.username,
+            member.age,
+            team.id,
+            team.name
+    );
+
+    private final TeamNameResolver teamNameResolver;
+    private final Template[] contentTemplates = new Template[SHAPE_COUNT];
+    private final Template[] countTemplates = new Template[SHAPE_COUNT];
+
+    MemberSearchQueryTemplates(TeamNameResolver teamNameResolver) {
+        this.teamNameResolver = teamNameResolver;
+        for (int shape = 0; shape < SHAPE_COUNT; shape++) {
+            // 조건은 모두 member 컬럼이므로 count 쿼리는 team 조인 없이 member 단일 테이블로 나간다
+            contentTemplates[shape] = new Template(MemberQueryBuilder.select(PROJECTION)
+                    .where(predicates(shape))
+                    .applyTo(new JPAQuery<>()));
+            countTemplates[shape] = new Template(MemberQueryBuilder.select(member.count())
+                    .where(predicates(shape))
+                    .applyTo(new JPAQuery<>()));
+        }
+    }
+
+    List<MemberTeamDto> fetch(EntityManager em, MemberSearchCondition condition) {
+        return fetch(em, condition, 0, -1);
+    }
+
+    // limit 이 음수면 전체 조회
+    @SuppressWarnings("unchecked")
+    List<MemberTeamDto> fetch(EntityManager em, MemberSearchCondition condition, long offset, int limit) {
+        Map<ParamExpression<?>, Object> params = params(condition);
+        if (params == null) {
+            return new ArrayList<>();
+        }
+        Query query = contentTemplates[shapeOf(condition)].createQuery(em, params);
+        if (offset > 0) {
+            query.setFirstResult((int) offset);
+        }
+        if (limit >= 0) {
+            query.setMaxResults(limit);
+        }
+        List<Object[]> rows = query.getResultList();
+        List<MemberTeamDto> result = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            result.add(PROJECTION.newInstance(row));
+        }
+        return result;
+    }
+
+    long count(EntityManager em, MemberSearchCondition condition) {
+        Map<ParamExpression<?>, Object> params = params(condition);
+        if (params == null) {
+            return 0;
+        }
+        return (Long) countTemplates[shapeOf(condition)].createQuery(em, params).getSingleResult();
+    }
+
+    // 실행 계획 검증용
+    String contentJpql(MemberSearchCondition condition) {
+        return contentTemplates[shapeOf(condition)].jpql;
+    }
+
+    String countJpql(MemberSearchCondition condition) {
+        return countTemplates[shapeOf(condition)].jpql;
+    }
+
+    // 메트릭 태그용 shape 이름 (예: "teamName+ageGoe", 조건이 없으면 "none")
+    static String shapeName(MemberSearchCondition condition) {
+        int shape = shapeOf(condition);
+        if (shape == 0) {
+            return "none";
+        }
+        StringJoiner name = new StringJoiner("+");
+        if ((shape & HAS_USERNAME) != 0) {
+            name.add("username");
+        }
+        if ((shape & HAS_TEAM_NAME) != 0) {
+            name.add("teamName");
+        }
+        if ((shape & HAS_AGE_GOE) != 0) {
+            name.add("ageGoe");
+        }
+        if ((shape & HAS_AGE_LOE) != 0) {
+            name.add("ageLoe");
+        }
+        return name.toString();
+    }
+
+    private static int shapeOf(MemberSearchCondition condition) {
+        int shape = 0;
+        if (StringUtils.hasText(condition.getUsername())) {
+            shape |= HAS_USERNAME;
+        }
+        if (StringUtils.hasText(condition.getTeamName())) {
+            shape |= HAS_TEAM_NAME;
+        }
+        if (condition.getAgeGoe() != null) {
+            shape |= HAS_AGE_GOE;
+        }
+        if (condition.getAgeLoe() != null) {
+            shape |= HAS_AGE_LOE;
+        }
+        return shape;
+    }
+
+    private static BooleanExpression[] predicates(int shape) {
+        return new BooleanExpression[]{
+                (shape & HAS_USERNAME) != 0 ? member.username.eq(USERNAME_PARAM) : null,
+                // 팀 이름은 TeamNameResolver 로 id 를 찾아서 member 의 FK 로 거른다
+                (shape & HAS_TEAM_NAME) != 0 ? Expressions.booleanTemplate("{0} in ({1})", member.team.id, TEAM_IDS_PARAM) : null,
+                (shape & HAS_AGE_GOE) != 0 ? member.age.goe(AGE_GOE_PARAM) : null,
+                (shape & HAS_AGE_LOE) != 0 ? member.age.loe(AGE_LOE_PARAM) : null
+        };
+    }
+
+    // 이름에 해당하는 팀이 없으면 null (쿼리 없이 빈 결과)
+    private Map<ParamExpression<?>, Object> params(MemberSearchCondition condition) {
+        Map<ParamExpression<?>, Object> params = new HashMap<>();
+        if (StringUtils.hasText(condition.getUsername())) {
+            params.put(USERNAME_PARAM, condition.getUsername());
+        }
+        if (StringUtils.hasText(condition.getTeamName())) {
+            List<Long> teamIds = teamNameResolver.resolve(condition.getTeamName());
+            if (teamIds.isEmpty()) {
+                return null;
+            }
+            params.put(TEAM_IDS_PARAM, teamIds);
+        }
+        if (condition.getAgeGoe() != null) {
+            params.put(AGE_GOE_PARAM, condition.getAgeGoe());
+        }
+        if (condition.getAgeLoe() != null) {
+            params.put(AGE_LOE_PARAM, condition.getAgeLoe());
+        }
+        return params;
+    }
+
+    private static class Template {
+        private final String jpql;
+        private final List<Object> constants;
+
+        private Template(JPAQuery<?> query) {
+            JPQLSerializer serializer = new JPQLSerializer(HQLTemplates.DEFAULT);
+            serializer.serialize(query.getMetadata(), false, null);
+            this.jpql = serializer.toString();
+            this.constants = serializer.getConstants();
+        }
+
+        private Query createQuery(EntityManager em, Map<ParamExpression<?>, Object> params) {
+            Query query = em.createQuery(jpql);
+            JPAUtil.setConstants(query, constants, params);
+            return query;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.sql.SQLQuery;
+import com.querydsl.sql.SQLQueryFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+
+import java.util.List;
+import java.util.Set;
+
+import static study.querydsl.sql.SMember.member;
+import static study.querydsl.sql.STeam.team;
+
+/**
+ * Hibernate 를 거치지 않고 querydsl-sql 로 바로 SQL 을 실행하는 DTO 조회.
+ * HQL 변환, 엔티티 메타데이터, 결과 변환 단계가 없다.
+ * member.sql-search.methods 에 적은 메서드(search, searchPageComplex, searchSlice)만 MemberRepositoryImpl 이 이쪽으로 보낸다.
+ * JPA 의 auto flush 가 없으므로 MemberRepositoryImpl 이 넘기기 전에 flush 한다 (직접 호출하면 flush 전 변경은 보이지 않는다).
+ */
+@Repository
+public class MemberSqlRepository {
+    private static final QMemberTeamDto PROJECTION = new QMemberTeamDto(
+            member.memberId,
+            member.username,
+            member.age,
+            team.id,
+            team.name
+    );
+
+    private final SQLQueryFactory queryFactory;
+    private final TeamNameResolver teamNameResolver;
+    private final MemberCountCache countCache;
+    private final Set<String> methods;
+
+    public MemberSqlRepository(SQLQueryFactory queryFactory, TeamNameResolver teamNameResolver,
+                               MemberCountCache countCache,
+                               @Value("${member.sql-search.methods:}") Set<String> methods) {
+        this.queryFactory = queryFactory;
+        this.teamNameResolver = teamNameResolver;
+        this.countCache = countCache;
+        this.methods = methods;
+    }
+
+    // MemberRepositoryCustom 의 메서드 이름
+    public boolean handles(String method) {
+        return methods.contains(method);
+    }
+
+    @Transactional(readOnly = true)
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        return contentQuery(condition).fetch();
+    }
+
+    @Transactional(readOnly = true)
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        List<MemberTeamDto> content = contentQuery(condition)
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch();
+        return PageableExecutionUtils.getPage(content, pageable, () -> countCache.get(condition, () -> queryFactory
+                .select(member.count())
+                .from(member)
+                .where(predicates(condition))
+                .fetchOne()));
+    }
+
+    @Transactional(readOnly = true)
+    public Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition, Pageable pageable) {
+        List<MemberTeamDto> content = contentQuery(condition)
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize() + 1)
+                .fetch();
+        boolean hasNext = content.size() > pageable.getPageSize();
+        if (hasNext) {
+            content.remove(content.size() - 1);
+        }
+        return new SliceImpl<>(content, pageable, hasNext);
+    }
+
+    private SQLQuery<MemberTeamDto> contentQuery(MemberSearchCondition condition) {
+        return queryFactory
+                .select(PROJECTION)
+                .from(member)
+                .leftJoin(team).on(member.teamId.eq(team.id))
+                .where(predicates(condition));
+    }
+
+    private Predicate[] predicates(MemberSearchCondition condition) {
+        return new Predicate[]{
+                usernameEq(condition.getUsername()),
+                teamNameEq(condition.getTeamName()),
+                ageGoe(condition.getAgeGoe()),
+                ageLoe(condition.getAgeLoe())
+        };
+    }
+
+    private BooleanExpression usernameEq(String username) {
+        return StringUtils.hasText(username) ? member.username.eq(username) : null;
+    }
+
+    // JPA 쪽과 같이 팀 이름을 id 로 바꿔서 member.team_id 로 거른다
+    private BooleanExpression teamNameEq(String teamName) {
+        return StringUtils.hasText(teamName) ? member.teamId.in(teamNameResolver.resolve(teamName)) : null;
+    }
+
+    private BooleanExpression ageGoe(Integer ageGoe) {
+        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    }
+
+    private BooleanExpression ageLoe(Integer ageLoe) {
+        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    }
+}
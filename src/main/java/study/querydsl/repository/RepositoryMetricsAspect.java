@@ -0,0 +1,99 @@
+package study.querydsl.repository;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberCursorPage;
+import study.querydsl.dto.MemberSearchCondition;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MemberRepository, MemberJPARepository 메서드별 지연시간과 결과 건수를 Micrometer 로 기록한다.
+ * - member.repository        : 타이머 (method, shape, outcome 태그, p50/p95/p99 + 히스토그램)
+ * - member.repository.rows   : 결과 건수 (method, shape 태그)
+ * shape 는 MemberSearchCondition 인자의 조건 조합이며, 조건이 없는 메서드는 "n/a" 이다.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class RepositoryMetricsAspect {
+    private final MeterRegistry registry;
+    // 태그 조합은 (메서드 수 x 16 shape x 2 outcome) 이하이므로 미터를 캐시해서 요청마다 빌더를 만들지 않는다
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> rowSummaries = new ConcurrentHashMap<>();
+
+    @Around("execution(* study.querydsl.repository.MemberRepository.*(..))"
+            + " || execution(* study.querydsl.repository.MemberJPARepository.*(..))")
+    public Object record(ProceedingJoinPoint joinPoint) throws Throwable {
+        String method = joinPoint.getSignature().getName();
+        String shape = shapeOf(joinPoint.getArgs());
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            Object result = joinPoint.proceed();
+            outcome = "success";
+            long rows = rowCount(result);
+            if (rows >= 0) {
+                rowSummary(method, shape).record(rows);
+            }
+            return result;
+        } finally {
+            timer(method, shape, outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer timer(String method, String shape, String outcome) {
+        return timers.computeIfAbsent(method + '|' + shape + '|' + outcome, key -> Timer.builder("member.repository")
+                .tag("method", method)
+                .tag("shape", shape)
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(registry));
+    }
+
+    private DistributionSummary rowSummary(String method, String shape) {
+        return rowSummaries.computeIfAbsent(method + '|' + shape, key -> DistributionSummary.builder("member.repository.rows")
+                .baseUnit("rows")
+                .tag("method", method)
+                .tag("shape", shape)
+                .register(registry));
+    }
+
+    private static String shapeOf(Object[] args) {
+        for (Object arg : args) {
+            if (arg instanceof MemberSearchCondition) {
+                return MemberSearchQueryTemplates.shapeName((MemberSearchCondition) arg);
+            }
+        }
+        return "n/a";
+    }
+
+    // 건수를 알 수 없는 반환 타입(void, count 등)은 -1
+    private static long rowCount(Object result) {
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Slice) {
+            return ((Slice<?>) result).getNumberOfElements();
+        }
+        if (result instanceof MemberCursorPage) {
+            return ((MemberCursorPage) result).getContent().size();
+        }
+        if (result instanceof Optional) {
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        }
+        return -1;
+    }
+}
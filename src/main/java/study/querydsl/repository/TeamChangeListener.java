@@ -0,0 +1,30 @@
+package study.querydsl.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+import javax.persistence.PrePersist;
+import javax.persistence.PreRemove;
+
+/**
+ * Team 엔티티 전용 JPA 리스너. 팀 이름 -> id 캐시를 무효화한다.
+ * TeamNameResolver 는 EntityManager 를 쓰므로 EntityManagerFactory 생성 시점에는 주입받을 수 없어 지연 조회한다.
+ * persist/remove 는 flush 전에도 캐시가 옛 id 를 돌려주지 않도록 호출 시점(Pre*)에도 무효화한다.
+ * 이름 변경은 flush 시점에 반영되므로 같은 트랜잭션 안에서 flush 전에는 이전 이름으로 조회된다.
+ */
+@RequiredArgsConstructor
+public class TeamChangeListener {
+    private final ObjectProvider<TeamNameResolver> teamNameResolver;
+
+    @PrePersist
+    @PreRemove
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object team) {
+        teamNameResolver.getObject().invalidate();
+    }
+}
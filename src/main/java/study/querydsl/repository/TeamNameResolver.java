@@ -0,0 +1,69 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * team.name -> team.id 목록 캐시.
+ * 팀 이름 조건을 member.team.id in (...) 으로 바꿔서 team 조인 없이 member 의 FK 인덱스만으로 찾게 한다.
+ * Team 이 바뀌면 {@link TeamChangeListener} 가 무효화한다. (이름은 유일하지 않으므로 id 목록을 돌려준다)
+ */
+@Component
+public class TeamNameResolver {
+    private final JPAQueryFactory queryFactory;
+    // Team 변경 전용 버전 (Member 변경으로는 무효화되지 않는다)
+    private final DataVersion teamVersion = new DataVersion();
+    private final Map<String, Entry> entries;
+
+    public TeamNameResolver(EntityManager em, @Value("${member.team-name-cache.max-size:10000}") int maxSize) {
+        this.queryFactory = new JPAQueryFactory(em);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public List<Long> resolve(String teamName) {
+        long version = teamVersion.current();
+        synchronized (entries) {
+            Entry entry = entries.get(teamName);
+            if (entry != null && entry.version == version) {
+                return entry.teamIds;
+            }
+        }
+        List<Long> teamIds = List.copyOf(queryFactory
+                .select(team.id)
+                .from(team)
+                .where(team.name.eq(teamName))
+                .orderBy(team.id.asc())
+                .fetch());
+        synchronized (entries) {
+            entries.put(teamName, new Entry(teamIds, version));
+        }
+        return teamIds;
+    }
+
+    public void invalidate() {
+        teamVersion.bump();
+    }
+
+    private static class Entry {
+        private final List<Long> teamIds;
+        private final long version;
+
+        private Entry(List<Long> teamIds, long version) {
+            this.teamIds = teamIds;
+            this.version = version;
+        }
+    }
+}
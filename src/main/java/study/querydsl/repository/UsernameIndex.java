@@ -0,0 +1,285 @@
+package study.querydsl.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberAutocompleteDto;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * username 자동완성용 메모리 인덱스. (username, id) 순으로 정렬해 두고 접두사 구간만 읽는다.
+ * 변경은 {@link UsernameIndexListener} 가 알려주고 트랜잭션별로 모아 두었다가 커밋된 뒤에만 반영한다 (롤백된 변경은 남지 않는다).
+ * <p>
+ * 인덱스는 기동 완료(ApplicationReadyEvent) 후 usernameIndexExecutor 에서 만든다. 리스너를 거치지 않는 JDBC 적재, 벌크 삭제 뒤에는
+ * invalidate() 로 백그라운드 재구축을 예약하고, 그동안은 기존 인덱스가 계속 응답한다. 처음 만들어지기 전에는 DB 접두사 조회로 응답한다.
+ * <p>
+ * 메모리는 회원 한 명당 약 200 바이트(정렬 집합 노드 + id 맵 항목 + 문자열)라서 100만 명이면 약 200MB 다.
+ * 회원 수가 member.autocomplete.max-entries 를 넘으면 인덱스를 비우고 DB 접두사 조회로 응답한다.
+ */
+@Slf4j
+@Component
+public class UsernameIndex {
+    private static final Comparator<MemberAutocompleteDto> ORDER = Comparator
+            .comparing(MemberAutocompleteDto::getUsername)
+            .thenComparing(MemberAutocompleteDto::getMemberId);
+    private static final String LOAD_SQL = "select member_id, username from member where username is not null limit ?";
+    private static final String PREFIX_SQL = "select member_id, username from member where username like ? escape '!'"
+            + " order by username, member_id limit ?";
+    static final int MAX_PENDING_CHANGES = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate loadTemplate;
+    private final Executor rebuildExecutor;
+    private final int maxEntries;
+
+    private volatile NavigableSet<MemberAutocompleteDto> entries = new ConcurrentSkipListSet<>(ORDER);
+    private volatile Map<Long, String> usernameById = new ConcurrentHashMap<>();
+    // 인덱스가 만들어져 있고 max-entries 이내일 때만 true
+    private volatile boolean ready;
+    private volatile boolean stale = true;
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    // rebuild() 는 백그라운드 스레드와 테스트에서 동시에 불릴 수 있으므로 한 번에 하나만
+    private final Object rebuildLock = new Object();
+    // 재구축 중에 커밋된 변경 (새 인덱스에 다시 적용한다)
+    private List<MemberAutocompleteDto> pending;
+
+    public UsernameIndex(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                         @Qualifier("usernameIndexExecutor") Executor rebuildExecutor,
+                         @Value("${member.autocomplete.max-entries:1000000}") int maxEntries) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.loadTemplate = new TransactionTemplate(transactionManager);
+        this.loadTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.loadTemplate.setReadOnly(true);
+        this.rebuildExecutor = rebuildExecutor;
+        this.maxEntries = maxEntries;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        scheduleRebuild();
+    }
+
+    /**
+     * prefix 로 시작하는 username 을 정렬 순서대로 최대 limit 건 돌려준다.
+     */
+    public List<MemberAutocompleteDto> search(String prefix, int limit) {
+        if (!ready) {
+            return searchDatabase(prefix, limit);
+        }
+        List<MemberAutocompleteDto> result = new ArrayList<>(Math.min(limit, 64));
+        for (MemberAutocompleteDto entry : entries.tailSet(new MemberAutocompleteDto(Long.MIN_VALUE, prefix), true)) {
+            if (result.size() >= limit || !entry.getUsername().startsWith(prefix)) {
+                break;
+            }
+            result.add(new MemberAutocompleteDto(entry.getMemberId(), entry.getUsername()));
+        }
+        return result;
+    }
+
+    // username 이 null 이면 인덱스에서 뺀다
+    void put(Long memberId, String username) {
+        record(memberId, username);
+    }
+
+    void remove(Long memberId) {
+        record(memberId, null);
+    }
+
+    public void invalidate() {
+        PendingChanges changes = pendingChanges();
+        if (changes == null) {
+            scheduleRebuild();
+        } else {
+            changes.invalidate();
+        }
+    }
+
+    private void record(Long memberId, String username) {
+        PendingChanges changes = pendingChanges();
+        if (changes == null) {
+            apply(memberId, username);
+        } else {
+            changes.record(memberId, username);
+        }
+    }
+
+    // 현재 트랜잭션의 변경 모음. 트랜잭션마다 동기화는 하나만 등록한다 (REQUIRES_NEW 로 중단된 바깥 트랜잭션 것은 보이지 않는다)
+    private PendingChanges pendingChanges() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingChanges && ((PendingChanges) synchronization).owner() == this) {
+                return (PendingChanges) synchronization;
+            }
+        }
+        PendingChanges changes = new PendingChanges();
+        TransactionSynchronizationManager.registerSynchronization(changes);
+        return changes;
+    }
+
+    private synchronized void apply(Long memberId, String username) {
+        if (ready) {
+            apply(entries, usernameById, memberId, username);
+        }
+        if (pending != null) {
+            pending.add(new MemberAutocompleteDto(memberId, username));
+        }
+    }
+
+    private static void apply(NavigableSet<MemberAutocompleteDto> entries, Map<Long, String> usernameById,
+                              Long memberId, String username) {
+        String previous = username != null ? usernameById.put(memberId, username) : usernameById.remove(memberId);
+        if (previous != null && !previous.equals(username)) {
+            entries.remove(new MemberAutocompleteDto(memberId, previous));
+        }
+        if (username != null) {
+            entries.add(new MemberAutocompleteDto(memberId, username));
+        }
+    }
+
+    private void scheduleRebuild() {
+        stale = true;
+        if (rebuildScheduled.compareAndSet(false, true)) {
+            rebuildExecutor.execute(this::rebuildWhileStale);
+        }
+    }
+
+    private void rebuildWhileStale() {
+        try {
+            while (stale) {
+                rebuild();
+            }
+        } catch (RuntimeException e) {
+            log.warn("username 인덱스 재구축 실패, 다음 invalidate 까지 기존 인덱스로 응답", e);
+            rebuildScheduled.set(false);
+            return;
+        }
+        rebuildScheduled.set(false);
+        // 루프를 빠져나온 직후 들어온 invalidate() 를 놓치지 않는다
+        if (stale) {
+            scheduleRebuild();
+        }
+    }
+
+    /**
+     * 커밋된 회원을 자체 읽기 전용 트랜잭션(REQUIRES_NEW)에서 읽어 새 인덱스를 만들고 교체한다.
+     * 읽는 동안에는 기존 인덱스가 응답하고, 그사이 커밋된 변경은 교체 직전에 새 인덱스에 다시 적용한다.
+     */
+    void rebuild() {
+        synchronized (rebuildLock) {
+            load();
+        }
+    }
+
+    private void load() {
+        synchronized (this) {
+            stale = false;
+            pending = new ArrayList<>();
+        }
+        NavigableSet<MemberAutocompleteDto> newEntries = new ConcurrentSkipListSet<>(ORDER);
+        Map<Long, String> newUsernameById = new ConcurrentHashMap<>();
+        Boolean complete;
+        try {
+            complete = loadTemplate.execute(status -> jdbcTemplate.query(LOAD_SQL, (ResultSetExtractor<Boolean>) rs -> {
+                int count = 0;
+                while (rs.next()) {
+                    if (++count > maxEntries) {
+                        return false;
+                    }
+                    long memberId = rs.getLong(1);
+                    String username = rs.getString(2);
+                    newEntries.add(new MemberAutocompleteDto(memberId, username));
+                    newUsernameById.put(memberId, username);
+                }
+                return true;
+            }, maxEntries + 1L));
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                pending = null;
+                stale = true;
+            }
+            throw e;
+        }
+
+        synchronized (this) {
+            if (Boolean.TRUE.equals(complete)) {
+                for (MemberAutocompleteDto change : pending) {
+                    apply(newEntries, newUsernameById, change.getMemberId(), change.getUsername());
+                }
+                entries = newEntries;
+                usernameById = newUsernameById;
+                ready = true;
+            } else {
+                log.warn("회원 수가 member.autocomplete.max-entries({})를 넘어 username 인덱스 대신 DB 로 조회", maxEntries);
+                entries = new ConcurrentSkipListSet<>(ORDER);
+                usernameById = new ConcurrentHashMap<>();
+                ready = false;
+            }
+            pending = null;
+        }
+    }
+
+    private List<MemberAutocompleteDto> searchDatabase(String prefix, int limit) {
+        String pattern = prefix.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+        return jdbcTemplate.query(PREFIX_SQL, (rs, rowNum) -> new MemberAutocompleteDto(rs.getLong(1), rs.getString(2)),
+                pattern, limit);
+    }
+
+    /**
+     * 한 트랜잭션에서 커밋된 뒤 반영할 변경. 같은 회원의 변경은 마지막 것만 남고,
+     * MAX_PENDING_CHANGES 건을 넘으면(대량 적재) 변경을 버리고 커밋 후 재구축한다. 트랜잭션 크기와 상관없이 메모리가 일정하다.
+     */
+    private final class PendingChanges implements TransactionSynchronization {
+        private final Map<Long, String> usernameById = new LinkedHashMap<>();
+        private boolean rebuild;
+
+        UsernameIndex owner() {
+            return UsernameIndex.this;
+        }
+
+        void record(Long memberId, String username) {
+            if (rebuild) {
+                return;
+            }
+            usernameById.put(memberId, username);
+            if (usernameById.size() > MAX_PENDING_CHANGES) {
+                invalidate();
+            }
+        }
+
+        void invalidate() {
+            usernameById.clear();
+            rebuild = true;
+        }
+
+        @Override
+        public void afterCommit() {
+            if (rebuild) {
+                scheduleRebuild();
+            } else {
+                usernameById.forEach(UsernameIndex.this::apply);
+            }
+        }
+    }
+}
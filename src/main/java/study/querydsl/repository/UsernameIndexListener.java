@@ -0,0 +1,29 @@
+package study.querydsl.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import study.querydsl.entity.Member;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * Member 엔티티 전용 JPA 리스너. username 자동완성 인덱스를 갱신한다 (반영은 커밋 이후).
+ * UsernameIndex 는 EntityManagerFactory 생성 시점에 주입받을 수 없으므로 지연 조회한다.
+ */
+@RequiredArgsConstructor
+public class UsernameIndexListener {
+    private final ObjectProvider<UsernameIndex> usernameIndex;
+
+    @PostPersist
+    @PostUpdate
+    public void onSave(Member member) {
+        usernameIndex.getObject().put(member.getId(), member.getUsername());
+    }
+
+    @PostRemove
+    public void onRemove(Member member) {
+        usernameIndex.getObject().remove(member.getId());
+    }
+}
@@ -0,0 +1,202 @@
+package study.querydsl.config;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.MemberCountCache;
+import study.querydsl.repository.MemberJPARepository;
+import study.querydsl.repository.MemberRepository;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * primary 와 별개의 H2 메모리 DB 를 replica 로 두고,
+ * 읽기 전용 조회는 replica 에서, 쓰기와 같은 클라이언트의 쓰기 직후 읽기는 primary 에서 실행되는지 확인한다.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.replica.url=jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1",
+        "spring.datasource.replica.username=sa",
+        "member.datasource.pin-after-write=1h"
+})
+@AutoConfigureMockMvc
+@Import(ReadWriteRoutingTest.ReadThenWriteController.class)
+@DirtiesContext
+class ReadWriteRoutingTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberJPARepository memberJPARepository;
+
+    @Autowired
+    MemberCountCache countCache;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    ReadYourWritesFilter readYourWritesFilter;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    DataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    DataSource replicaDataSource;
+
+    @BeforeEach
+    void before() {
+        // 복제 대신 primary 의 스키마를 그대로 replica 에 만든다
+        JdbcTemplate replica = new JdbcTemplate(replicaDataSource);
+        for (String ddl : new JdbcTemplate(primaryDataSource).queryForList("script nodata", String.class)) {
+            if (!ddl.startsWith("--") && !ddl.startsWith("CREATE USER")) {
+                replica.execute(ddl);
+            }
+        }
+        replica.update("insert into member (member_id, username, age) values (1, 'member1', 99)");
+    }
+
+    @AfterEach
+    void after() {
+        new JdbcTemplate(replicaDataSource).execute("drop all objects");
+        transactionTemplate.executeWithoutResult(status -> memberRepository.deleteAll());
+    }
+
+    @Test
+    void routingTest() throws Exception{
+        // given: 쓰기 요청. primary 에만 저장되고 커밋 시각이 쿠키로 내려간다
+        MockHttpServletResponse writeResponse = perform(null,
+                () -> transactionTemplate.executeWithoutResult(status -> memberRepository.save(new Member("member1", 10))));
+        Cookie lastWrite = writeResponse.getCookie(ReadYourWritesFilter.COOKIE_NAME);
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("member1");
+
+        // when: 같은 클라이언트의 다음 요청은 다른 워커 스레드에서 실행되어도 primary
+        List<MemberTeamDto> fromPrimary = CompletableFuture.supplyAsync(() -> search(lastWrite, condition)).join();
+        // 쿠키가 없는 다른 클라이언트는 replica
+        List<MemberTeamDto> fromReplica = CompletableFuture.supplyAsync(() -> search(null, condition)).join();
+        // 트랜잭션 밖의 조회는 primary 로 가지만 클라이언트를 고정하지 않는다
+        MockHttpServletResponse readResponse = perform(null, () -> memberJPARepository.findAll());
+
+        // then
+        assertThat(lastWrite).isNotNull();
+        assertThat(fromPrimary).extracting("age").containsExactly(10);
+        assertThat(fromReplica).extracting("age").containsExactly(99);
+        assertThat(readResponse.getCookie(ReadYourWritesFilter.COOKIE_NAME)).isNull();
+    }
+
+    @Test
+    void openInViewTest() throws Exception{
+        // when: MockMvc 로 필터와 OSIV 를 모두 거친다. 한 요청 안에서 읽기 전용 조회(replica) 뒤에 쓰기
+        MockHttpServletResponse writeResponse = mockMvc.perform(post("/test/members").param("username", "member2"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+        Cookie lastWrite = writeResponse.getCookie(ReadYourWritesFilter.COOKIE_NAME);
+        // 같은 클라이언트의 다음 요청은 primary
+        String pinned = mockMvc.perform(get("/test/members").param("username", "member2").cookie(lastWrite))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        // then: 쓰기는 요청의 첫 커넥션(replica)이 아니라 primary 에서 실행된다
+        String count = "select count(*) from member where username = 'member2'";
+        assertThat(new JdbcTemplate(primaryDataSource).queryForObject(count, Long.class)).isEqualTo(1);
+        assertThat(new JdbcTemplate(replicaDataSource).queryForObject(count, Long.class)).isZero();
+        assertThat(lastWrite).isNotNull();
+        assertThat(pinned).contains("member2");
+    }
+
+    @Test
+    void versionReuseDisabledTest() throws Exception{
+        // given
+        MemberSearchCondition condition = new MemberSearchCondition();
+        AtomicInteger countQueries = new AtomicInteger();
+
+        // when: replica 를 쓰면 DataVersion 기반 재사용(ETag, count 캐시)을 하지 않는다
+        String etag = mockMvc.perform(get("/v2/members"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        countCache.get(condition, () -> (long) countQueries.incrementAndGet());
+        countCache.get(condition, () -> (long) countQueries.incrementAndGet());
+
+        // then
+        assertThat(etag).isNull();
+        assertThat(countQueries).hasValue(2);
+    }
+
+    // 한 요청에서 읽기 전용 조회 뒤에 쓰기를 하는 컨트롤러
+    @RestController
+    @RequiredArgsConstructor
+    static class ReadThenWriteController {
+        private final MemberRepository memberRepository;
+
+        @GetMapping("/test/members")
+        public List<MemberTeamDto> search(String username) {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setUsername(username);
+            return memberRepository.search(condition);
+        }
+
+        @PostMapping("/test/members")
+        public List<MemberTeamDto> readThenWrite(String username) {
+            List<MemberTeamDto> before = search(username);
+            memberRepository.save(new Member(username, 20));
+            return before;
+        }
+    }
+
+    private List<MemberTeamDto> search(Cookie cookie, MemberSearchCondition condition) {
+        List<List<MemberTeamDto>> result = new ArrayList<>();
+        perform(cookie, () -> result.add(memberRepository.search(condition)));
+        return result.get(0);
+    }
+
+    private MockHttpServletResponse perform(Cookie cookie, Runnable action) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        if (cookie != null) {
+            request.setCookies(cookie);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            readYourWritesFilter.doFilter(request, response, (req, res) -> action.run());
+        } catch (IOException | ServletException e) {
+            throw new IllegalStateException(e);
+        }
+        return response;
+    }
+}
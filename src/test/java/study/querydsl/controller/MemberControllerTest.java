@@ -0,0 +1,127 @@
+package study.querydsl.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.UsernameIndex;
+
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class MemberControllerTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    MemberETags memberETags;
+
+    @Autowired
+    UsernameIndex usernameIndex;
+
+    @Test
+    void etagTest() throws Exception{
+        // given
+        String etag = mockMvc.perform(get("/v2/members").param("teamName", "teamA").param("page", "0"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).isNotNull();
+
+        // when, then: 같은 조건 → 304, 다른 페이지 → 200
+        mockMvc.perform(get("/v2/members").param("teamName", "teamA").param("page", "0")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/v2/members").param("teamName", "teamA").param("page", "1")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+
+        // when, then: 데이터가 바뀌면 같은 조건이라도 200
+        Member member = new Member("etagMember", 10);
+        transactionTemplate.executeWithoutResult(status -> memberRepository.save(member));
+        transactionTemplate.executeWithoutResult(status -> memberRepository.deleteById(member.getId()));
+        mockMvc.perform(get("/v2/members").param("teamName", "teamA").param("page", "0")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void cursorBadRequestTest() throws Exception{
+        // 잘못된 cursor, size < 1 → 400
+        mockMvc.perform(get("/v4/members").param("cursor", "not-a-cursor!"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").exists());
+        mockMvc.perform(get("/v4/members").param("size", "0"))
+                .andExpect(status().isBadRequest());
+
+        // 너무 큰 size 는 최대값으로 줄인다
+        mockMvc.perform(get("/v4/members").param("size", String.valueOf(Integer.MAX_VALUE)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void internalIllegalArgumentTest() throws Exception{
+        // given: 리포지토리 내부에서 난 IllegalArgumentException
+        MemberRepository failingRepository = mock(MemberRepository.class);
+        given(failingRepository.searchByCursor(any(), any(), anyInt())).willThrow(new IllegalArgumentException("internal"));
+        MockMvc standalone = MockMvcBuilders
+                .standaloneSetup(new MemberController(failingRepository, objectMapper, memberETags, usernameIndex))
+                .build();
+
+        // when, then: 400 으로 바꾸지 않고 서버 오류로 전파한다
+        assertThatThrownBy(() -> standalone.perform(get("/v4/members")))
+                .hasCauseInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void searchBatchRequestTest() throws Exception{
+        // 빈 목록 → 쿼리 없이 []
+        mockMvc.perform(post("/members/search/batch").contentType(MediaType.APPLICATION_JSON).content("[]"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[]"));
+
+        // 조건 100개까지는 200, 넘으면 400
+        mockMvc.perform(post("/members/search/batch").contentType(MediaType.APPLICATION_JSON).content(conditions(100)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(100));
+        mockMvc.perform(post("/members/search/batch").contentType(MediaType.APPLICATION_JSON).content(conditions(101)))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static String conditions(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> "{\"ageGoe\":" + i + "}")
+                .collect(Collectors.joining(",", "[", "]"));
+    }
+}
@@ -1,12 +1,19 @@
 package study.querydsl.entity;
 
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
 @SpringBootTest
 @Transactional
 class MemberTest {
@@ -14,6 +21,9 @@ class MemberTest {
     @Autowired
     EntityManager em;
 
+    @Autowired
+    EntityManagerFactory emf;
+
     @Test
     void MemberHasTest() throws Exception{
         // given
@@ -45,4 +55,41 @@ class MemberTest {
             System.out.println("Team = " + member.getTeam());
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void teamSecondLevelCacheTest() throws Exception{
+        // READ_WRITE 캐시는 커밋 이후에 시작한 세션에만 보이므로 트랜잭션을 나눠서 확인한다
+        // given
+        EntityManager em1 = emf.createEntityManager();
+        em1.getTransaction().begin();
+        Team teamA = new Team("teamA");
+        Member member1 = new Member("member1", 10, teamA);
+        em1.persist(teamA);
+        em1.persist(member1);
+        em1.getTransaction().commit();
+        em1.close();
+
+        CacheRegionStatistics stats = emf.unwrap(SessionFactory.class)
+                .getStatistics().getDomainDataRegionStatistics(Team.class.getName());
+        EntityManager em2 = emf.createEntityManager();
+        try {
+            // when
+            em2.find(Team.class, teamA.getId()); // 캐시에 없으면 DB 조회 후 캐시에 저장
+            em2.clear();
+            long hitCount = stats.getHitCount();
+            Member findMember = em2.find(Member.class, member1.getId());
+            String teamName = findMember.getTeam().getName(); // 프록시 초기화
+
+            // then
+            assertThat(teamName).isEqualTo("teamA");
+            assertThat(stats.getHitCount()).isEqualTo(hitCount + 1);
+        } finally {
+            em2.getTransaction().begin();
+            em2.remove(em2.find(Member.class, member1.getId()));
+            em2.remove(em2.find(Team.class, teamA.getId()));
+            em2.getTransaction().commit();
+            em2.close();
+        }
+    }
+}
@@ -17,6 +17,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.dto.MemberDto;
+import study.querydsl.dto.QMemberDto;
 import study.querydsl.dto.UserDto;
 
 import javax.persistence.EntityManager;
@@ -857,17 +858,17 @@ class QuerldslBasicTest {
                 .fetch();
     }
 
-//    @Test
-//    void ifndDtoByQueryProjection() throws Exception{
-//        // when
-//        List<MemberDto> result = queryFactory
-//                .select(new QMemberDto(member.username, member.age))
-//                .from(member)
-//                .fetch();
-//
-//        // then
-//        for (MemberDto memberDto : result) {
-//            System.out.println("memberDto = " + memberDto);
-//        }
-//    }
+    @Test
+    void ifndDtoByQueryProjection() throws Exception{
+        // when
+        List<MemberDto> result = queryFactory
+                .select(new QMemberDto(member.username, member.age))
+                .from(member)
+                .fetch();
+
+        // then
+        for (MemberDto memberDto : result) {
+            System.out.println("memberDto = " + memberDto);
+        }
+    }
 }
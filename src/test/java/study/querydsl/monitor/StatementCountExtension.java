@@ -0,0 +1,38 @@
+package study.querydsl.monitor;
+
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.ParameterContext;
+import org.junit.jupiter.api.extension.ParameterResolver;
+
+/**
+ * 테스트 메서드마다 SQL 문장 수를 센다.
+ * 테스트 메서드에 StatementStats 파라미터를 선언하면 주입되고, reset() 이후 실행된 문장 수를 getCount() 로 확인한다.
+ */
+public class StatementCountExtension implements BeforeEachCallback, AfterEachCallback, ParameterResolver {
+    private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(StatementCountExtension.class);
+
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        StatementStats previous = StatementCounter.start();
+        if (previous != null) {
+            context.getStore(NAMESPACE).put("previous", previous);
+        }
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) {
+        StatementCounter.stop(context.getStore(NAMESPACE).remove("previous", StatementStats.class));
+    }
+
+    @Override
+    public boolean supportsParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+        return parameterContext.getParameter().getType() == StatementStats.class;
+    }
+
+    @Override
+    public Object resolveParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+        return StatementCounter.current();
+    }
+}
@@ -1,21 +1,29 @@
 package study.querydsl.repository;
 
+import org.hibernate.Session;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.Team;
+import study.querydsl.monitor.StatementCountExtension;
+import study.querydsl.monitor.StatementStats;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
 @SpringBootTest
 @Transactional
+@ExtendWith(StatementCountExtension.class)
 class MemberJPARepositoryTest {
     @Autowired
     EntityManager em;
@@ -26,6 +34,9 @@ class MemberJPARepositoryTest {
     @Autowired
     MemberRepository memberRepository;
 
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
     @Test
     void basicTest() throws Exception{
         // given
@@ -75,5 +86,155 @@ class MemberJPARepositoryTest {
         
     }
 
+    @Test
+    void readOnlyTest() throws Exception{
+        // given
+        Member member = new Member("member1", 10);
+        memberJPARepository.save(member);
+        em.flush();
+        em.clear();
+
+        // when: 쓰기 트랜잭션 안이라도 readOnly 로 읽은 엔티티는 변경 감지 대상이 아니다
+        Member findMember = memberJPARepository.findByUsername_ReadOnly("member1").get(0);
+        boolean readOnly = em.unwrap(Session.class).isReadOnly(findMember);
+        findMember.setAge(20);
+        em.flush();
+        em.clear();
+
+        // then
+        assertThat(readOnly).isTrue();
+        assertThat(memberJPARepository.findAll_ReadOnly()).extracting("age").containsExactly(10);
+    }
+
+    @Test
+    void querydslManagedInWriteTransactionTest() throws Exception{
+        // given
+        memberJPARepository.save(new Member("member1", 10));
+        em.flush();
+        em.clear();
+
+        // when: 바깥 쓰기 트랜잭션에 참여하므로 변경 감지된다
+        memberJPARepository.findAll_Querydsl().get(0).setAge(20);
+        em.flush();
+        em.clear();
+
+        // then
+        assertThat(memberJPARepository.findByUsername_Querydsl("member1")).extracting("age").containsExactly(20);
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void querydslReadOnlyWithoutTransactionTest() throws Exception{
+        // given
+        transactionTemplate.executeWithoutResult(status -> memberJPARepository.save(new Member("member1", 10)));
+
+        try {
+            // when: 자체 readOnly 트랜잭션에서 읽었으므로 돌려받은 엔티티는 관리 대상이 아니고 수정해도 반영되지 않는다
+            Member findMember = memberJPARepository.findAll_Querydsl().get(0);
+            findMember.setAge(20);
+            transactionTemplate.executeWithoutResult(status -> em.flush());
+
+            // then
+            assertThat(em.contains(findMember)).isFalse();
+            assertThat(memberJPARepository.findAll_ReadOnly()).extracting("age").containsExactly(10);
+        } finally {
+            transactionTemplate.executeWithoutResult(status -> memberRepository.deleteAll());
+        }
+    }
 
-}
\ No newline at end of file
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void statelessTest() throws Exception{
+        // given: StatelessSession 은 별도 커넥션을 쓰므로 커밋해 둔다
+        transactionTemplate.executeWithoutResult(status -> {
+            memberJPARepository.save(new Member("member1", 10));
+            memberJPARepository.save(new Member("member2", 20));
+        });
+
+        try {
+            // when
+            List<Member> result = new ArrayList<>();
+            memberJPARepository.forEach_Stateless(result::add);
+
+            // then
+            assertThat(result).extracting("username").containsExactly("member1", "member2");
+        } finally {
+            transactionTemplate.executeWithoutResult(status -> memberRepository.deleteAll());
+        }
+    }
+
+    @Test
+    void fetchPlanTest(StatementStats statements) throws Exception{
+        // given: 팀 2개, 회원 4명
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 0; i < 4; i++) {
+            em.persist(new Member("member" + i, 10 + i, i % 2 == 0 ? teamA : teamB));
+        }
+        em.flush();
+
+        // when, then: 회원 → 팀 → 팀의 회원 목록까지 탐색할 때 실행되는 쿼리 수
+        assertThat(statementsToTraverse(FetchPlan.LAZY, statements)).isEqualTo(1 + 2 + 1);
+        assertThat(statementsToTraverse(FetchPlan.TEAM_FETCH_JOIN, statements)).isEqualTo(1 + 1);
+        assertThat(statementsToTraverse(FetchPlan.TEAM_ENTITY_GRAPH, statements)).isEqualTo(1 + 1);
+        assertThat(statementsToTraverse(FetchPlan.TEAM_BATCH, statements)).isEqualTo(2 + 1);
+        assertThat(statementsToTraverse(FetchPlan.TEAM_MEMBERS_BATCH, statements)).isEqualTo(2);
+
+        em.clear();
+        statements.reset();
+        memberRepository.findWithTeamByUsername("member0").get(0).getTeam().getName();
+        assertThat(statements.getCount()).isEqualTo(1);
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void fetchPlanWithoutTransactionTest() throws Exception{
+        // given: 트랜잭션 밖에서 호출해도 조회와 team 프리로드가 같은 영속성 컨텍스트에서 실행되어야 한다
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            em.persist(new Member("member1", 10, teamA));
+        });
+
+        try {
+            for (FetchPlan fetchPlan : FetchPlan.values()) {
+                if (fetchPlan == FetchPlan.LAZY) {
+                    continue;
+                }
+                // when
+                Member byUsername = memberJPARepository.findByUsername_Querydsl("member1", fetchPlan).get(0);
+                Member fromAll = memberJPARepository.findAll_Querydsl(fetchPlan).get(0);
+
+                // then
+                assertThat(byUsername.getTeam().getName()).as(fetchPlan.name()).isEqualTo("teamA");
+                assertThat(fromAll.getTeam().getName()).as(fetchPlan.name()).isEqualTo("teamA");
+                if (fetchPlan == FetchPlan.TEAM_MEMBERS_BATCH) {
+                    assertThat(byUsername.getTeam().getMembers()).hasSize(1);
+                    assertThat(fromAll.getTeam().getMembers()).hasSize(1);
+                }
+            }
+        } finally {
+            transactionTemplate.executeWithoutResult(status -> {
+                em.createQuery("delete from Member").executeUpdate();
+                em.createQuery("delete from Team").executeUpdate();
+            });
+        }
+    }
+
+    // team.members 는 @BatchSize 로 두 팀이 한 번에 초기화된다
+    private int statementsToTraverse(FetchPlan fetchPlan, StatementStats statements) {
+        em.clear();
+        statements.reset();
+        List<Member> members = memberJPARepository.findAll_Querydsl(fetchPlan);
+        for (Member member : members) {
+            member.getTeam().getName();
+        }
+        for (Member member : members) {
+            member.getTeam().getMembers().size();
+        }
+        assertThat(members).hasSize(4);
+        return statements.getCount();
+    }
+}
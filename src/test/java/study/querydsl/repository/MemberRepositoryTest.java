@@ -1,24 +1,43 @@
 package study.querydsl.repository;
 
+import com.querydsl.core.types.Predicate;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberAutocompleteDto;
+import study.querydsl.dto.MemberBulkResult;
+import study.querydsl.dto.MemberCursorPage;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.QMember;
 import study.querydsl.entity.Team;
+import study.querydsl.monitor.StatementCountExtension;
+import study.querydsl.monitor.StatementStats;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
 @SpringBootTest
 @Transactional
+@ExtendWith(StatementCountExtension.class)
 class MemberRepositoryTest {
     @Autowired
     EntityManager em;
@@ -26,6 +45,30 @@ class MemberRepositoryTest {
     @Autowired
     MemberRepository memberRepository;
 
+    @Autowired
+    MemberJPARepository memberJPARepository;
+
+    @Autowired
+    MemberCountCache countCache;
+
+    @Autowired
+    MemberBulkLoader memberBulkLoader;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    UsernameIndex usernameIndex;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
     @Test
     void basicTest() throws Exception{
         // given
@@ -81,6 +124,7 @@ class MemberRepositoryTest {
 //        assertThat(result).extracting("username").containsExactly("member4");
         assertThat(result.getSize()).isEqualTo(3);
         assertThat(result.getContent()).extracting("username").containsExactly("member1", "member2", "member3");
+        assertThat(result.getTotalElements()).isEqualTo(4);
 
     }
 
@@ -109,5 +153,475 @@ class MemberRepositoryTest {
 
     }
 
+    @Test
+    void searchByCursorTest() throws Exception{
+        // given
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.persist(new Member("member5", 50, teamB));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamB");
+
+        // when
+        MemberCursorPage first = memberRepository.searchByCursor(condition, null, 2);
+        MemberCursorPage second = memberRepository.searchByCursor(condition, first.getNextCursor(), 2);
+
+        // then
+        assertThat(first.getContent()).extracting("username").containsExactly("member3", "member4");
+        assertThat(first.isHasNext()).isTrue();
+        assertThat(second.getContent()).extracting("username").containsExactly("member5");
+        assertThat(second.isHasNext()).isFalse();
+        assertThat(second.getNextCursor()).isNull();
+    }
+
+    @Test
+    void countCacheTest() throws Exception{
+        // given
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamA));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        PageRequest pageRequest = PageRequest.of(0, 2);
+
+        // when
+        Page<MemberTeamDto> first = memberRepository.searchPageComplex(condition, pageRequest);
+
+        // then
+        assertThat(first.getTotalElements()).isEqualTo(3);
+        // 같은 조건(빈 문자열은 null 과 동일)은 DB 를 거치지 않는다
+        condition.setUsername("");
+        assertThat(countCache.get(condition, () -> { throw new AssertionError("count 쿼리가 실행됨"); })).isEqualTo(3);
+
+        // Member 가 추가되면 캐시가 무효화된다
+        em.persist(new Member("member4", 40, teamA));
+        Page<MemberTeamDto> second = memberRepository.searchPageComplex(condition, pageRequest);
+        assertThat(second.getTotalElements()).isEqualTo(4);
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void searchPageConcurrentTest() throws Exception{
+        // given
+        // 별도 커넥션에서 조회하므로 커밋된 데이터가 필요하다
+        List<Member> members = memberRepository.saveAll(List.of(
+                new Member("member1", 10),
+                new Member("member2", 20),
+                new Member("member3", 30)));
 
-}
\ No newline at end of file
+        try {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setAgeGoe(15);
+
+            // when
+            Page<MemberTeamDto> result = memberRepository.searchPageConcurrent(condition, PageRequest.of(0, 1));
+
+            // then
+            assertThat(result.getContent()).extracting("username").containsExactly("member2");
+            assertThat(result.getTotalElements()).isEqualTo(2);
+        } finally {
+            memberRepository.deleteAll(members);
+        }
+    }
+
+    @Test
+    void searchForEachTest() throws Exception{
+        // given
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(15);
+
+        // when
+        List<MemberTeamDto> result = new ArrayList<>();
+        memberRepository.searchForEach(condition, result::add);
+
+        // then
+        assertThat(result).extracting("username").containsExactly("member2", "member3");
+        assertThat(result).extracting("teamName").containsExactly("teamA", null);
+    }
+
+    @Test
+    void bulkLoadTest() throws Exception{
+        // given
+        memberBulkLoader.loadWithJdbc(3, 120, 50);
+
+        // when
+        // JDBC 로 채번한 뒤에도 JPA persist 의 id 가 겹치지 않아야 한다
+        Member member = new Member("extra", 10);
+        memberRepository.save(member);
+        em.flush();
+
+        // then
+        assertThat(memberRepository.count()).isEqualTo(121);
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamC");
+        assertThat(memberRepository.search(condition)).hasSize(40);
+    }
+
+    @Test
+    void searchQueryShapeTest() throws Exception{
+        // given
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 0; i < 20; i++) {
+            em.persist(new Member("member" + (i % 5), i * 5, i % 2 == 0 ? teamA : teamB));
+        }
+
+        // when, then
+        // 16가지 조건 조합 모두 querydsl 로 매번 만든 쿼리와 결과가 같아야 한다
+        for (int shape = 0; shape < 16; shape++) {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setUsername((shape & 1) != 0 ? "member2" : null);
+            condition.setTeamName((shape & 2) != 0 ? "teamA" : null);
+            condition.setAgeGoe((shape & 4) != 0 ? 20 : null);
+            condition.setAgeLoe((shape & 8) != 0 ? 80 : null);
+
+            List<MemberTeamDto> expected = memberJPARepository.search(condition);
+            assertThat(memberRepository.search(condition)).usingRecursiveFieldByFieldElementComparator()
+                    .containsExactlyInAnyOrderElementsOf(expected);
+            assertThat(memberRepository.searchPageComplex(condition, PageRequest.of(0, 3)).getTotalElements())
+                    .isEqualTo(expected.size());
+        }
+    }
+
+    @Test
+    void repositoryMetricsTest() throws Exception{
+        // given
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        condition.setAgeGoe(15);
+        Timer timer = meterRegistry.timer("member.repository", "method", "search", "shape", "teamName+ageGoe", "outcome", "success");
+        long before = timer.count();
+
+        // when
+        memberRepository.search(condition);
+
+        // then
+        assertThat(timer.count()).isEqualTo(before + 1);
+        assertThat(meterRegistry.get("member.repository.rows").tag("method", "search").tag("shape", "teamName+ageGoe")
+                .summary().totalAmount()).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    void teamNameResolveTest() throws Exception{
+        // given
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        assertThat(memberRepository.search(condition)).extracting("username").containsExactly("member1");
+
+        // when
+        // 같은 이름의 팀이 추가되면 팀 이름 -> id 캐시가 무효화된다
+        Team otherTeamA = new Team("teamA");
+        em.persist(otherTeamA);
+        em.persist(new Member("member2", 20, otherTeamA));
+
+        // then
+        assertThat(memberRepository.search(condition)).extracting("username").containsExactlyInAnyOrder("member1", "member2");
+        assertThat(memberRepository.searchByCursor(condition, null, 10).getContent()).hasSize(2);
+        condition.setTeamName("noSuchTeam");
+        assertThat(memberRepository.search(condition)).isEmpty();
+        assertThat(memberRepository.searchByCursor(condition, null, 10).getContent()).isEmpty();
+    }
+
+    @Test
+    void findAllByIdsTest() throws Exception{
+        // given
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            Member member = new Member("member" + i, i, teamA);
+            em.persist(member);
+            ids.add(member.getId());
+        }
+        em.flush();
+        em.clear();
+
+        // 역순 + 중복 + 없는 id, 512 개를 넘겨서 두 묶음으로 나뉜다
+        List<Long> request = new ArrayList<>(ids);
+        Collections.reverse(request);
+        request.add(ids.get(0));
+        request.add(-1L);
+
+        // when
+        List<Member> members = memberRepository.findAllByIds(request);
+        List<MemberTeamDto> dtos = memberRepository.findAllMemberTeamDtoByIds(request.subList(0, 3));
+
+        // then
+        assertThat(members).hasSize(601);
+        assertThat(members).extracting("id").containsExactlyElementsOf(request.subList(0, 601));
+        assertThat(dtos).extracting("username").containsExactly("member599", "member598", "member597");
+        assertThat(dtos).extracting("teamName").containsOnly("teamA");
+        assertThat(InListChunks.of(request)).extracting(List::size).containsExactly(512, 89);
+        assertThat(em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                .getSessionFactoryOptions().inClauseParameterPaddingEnabled()).isTrue();
+    }
+
+    @Test
+    void searchBatchTest() throws Exception{
+        // given
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+
+        MemberSearchCondition teamBCondition = new MemberSearchCondition();
+        teamBCondition.setTeamName("teamB");
+        MemberSearchCondition ageCondition = new MemberSearchCondition();
+        ageCondition.setAgeLoe(20);
+        MemberSearchCondition noTeamCondition = new MemberSearchCondition();
+        noTeamCondition.setTeamName("teamC");
+
+        // when
+        List<List<MemberTeamDto>> results = memberRepository.searchBatch(
+                List.of(teamBCondition, ageCondition, noTeamCondition, teamBCondition));
+
+        // then
+        assertThat(results).hasSize(4);
+        assertThat(results.get(0)).extracting("username").containsExactlyInAnyOrder("member3", "member4");
+        assertThat(results.get(1)).extracting("username").containsExactlyInAnyOrder("member1", "member2");
+        assertThat(results.get(2)).isEmpty();
+        assertThat(results.get(3)).isEqualTo(results.get(0));
+    }
+
+    @Test
+    void bulkUpdateTest() throws Exception{
+        // given: 나이 0~99 가 반복되는 회원 12000 명 (id 구간 2개)
+        memberBulkLoader.loadWithJdbc(2, 12000, 1000);
+        Member member0 = memberRepository.findByUsername("member0").get(0);
+        assertThat(em.contains(member0)).isTrue();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(90);
+
+        // when
+        MemberBulkResult addResult = memberRepository.bulkAddAge(condition, 100);
+
+        // then
+        assertThat(addResult.getChunkRows()).hasSize(2);
+        assertThat(addResult.getTotalRows()).isEqualTo(1200);
+        assertThat(em.contains(member0)).isFalse();
+        assertThat(memberRepository.findByUsername("member99").get(0).getAge()).isEqualTo(199);
+
+        // when: 바뀐 나이 기준으로 팀 변경, 삭제
+        Team teamC = new Team("teamC");
+        em.persist(teamC);
+        condition.setAgeGoe(190);
+        MemberBulkResult changeResult = memberRepository.bulkChangeTeam(condition, teamC.getId());
+        MemberSearchCondition teamCCondition = new MemberSearchCondition();
+        teamCCondition.setTeamName("teamC");
+        MemberBulkResult deleteResult = memberRepository.bulkDelete(teamCCondition);
+
+        // then
+        assertThat(changeResult.getTotalRows()).isEqualTo(1200);
+        assertThat(deleteResult.getTotalRows()).isEqualTo(1200);
+        assertThat(memberRepository.count()).isEqualTo(10800);
+    }
+
+    @Test
+    void searchSliceTest() throws Exception{
+        // given
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 0; i < 5; i++) {
+            em.persist(new Member("member" + i, 10 + i, teamA));
+        }
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+
+        // when
+        Slice<MemberTeamDto> first = memberRepository.searchSlice(condition, PageRequest.of(0, 3));
+        Slice<MemberTeamDto> last = memberRepository.searchSlice(condition, PageRequest.of(1, 3));
+
+        // then
+        assertThat(first.getContent()).hasSize(3);
+        assertThat(first.hasNext()).isTrue();
+        assertThat(last.getContent()).hasSize(2);
+        assertThat(last.hasNext()).isFalse();
+    }
+
+    @Test
+    void searchPageEstimatedTest() throws Exception{
+        // given: 나이 0~99 가 반복되는 회원 5000 명 (age <= 9 는 정확히 500 명)
+        memberBulkLoader.loadWithJdbc(2, 5000, 1000);
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeLoe(9);
+
+        // when: 기본 threshold(100000) 미만이면 정확한 count
+        Page<MemberTeamDto> exact = memberRepository.searchPageEstimated(condition, PageRequest.of(0, 10));
+        // threshold 를 낮추면 표본 1000 건으로 추정
+        MemberCountEstimator estimator = new MemberCountEstimator(em, jdbcTemplate, 1000, 1000);
+        long estimated = estimator.count(new Predicate[]{QMember.member.age.loe(9)}, () -> -1L);
+
+        // then
+        assertThat(exact.getTotalElements()).isEqualTo(500);
+        assertThat(estimator.tableRowCount()).isGreaterThanOrEqualTo(5000);
+        assertThat(estimated).isBetween(450L, 550L);
+    }
+
+    @Test
+    void searchPageEstimatedLateRowsTest() throws Exception{
+        // given: 회원 5000 명 뒤에 나중에 만든 팀의 회원 1000 명 (앞쪽 id 구간에는 하나도 없다)
+        memberBulkLoader.loadWithJdbc(2, 5000, 1000);
+        Team late = new Team("lateTeam");
+        em.persist(late);
+        for (int i = 0; i < 1000; i++) {
+            em.persist(new Member("late" + i, i % 100, late));
+        }
+        em.flush();
+        em.clear();
+
+        // when
+        MemberCountEstimator estimator = new MemberCountEstimator(em, jdbcTemplate, 1000, 1000);
+        long estimated = estimator.count(new Predicate[]{QMember.member.team.id.eq(late.getId())}, () -> -1L);
+
+        // then: 0 으로 떨어지지 않고 실제 1000 명 근처로 추정
+        assertThat(estimated).isBetween(500L, 1500L);
+    }
+
+    @Test
+    void statementCountTest(StatementStats statements) throws Exception{
+        // given
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 0; i < 4; i++) {
+            em.persist(new Member("member" + i, 10 + i, i % 2 == 0 ? teamA : teamB));
+        }
+        em.flush();
+        em.clear();
+        statements.reset();
+
+        // when: team 이 LAZY 라서 팀마다 한 번씩 더 조회된다 (N+1)
+        List<Member> members = memberJPARepository.findAll_Querydsl();
+        members.forEach(member -> member.getTeam().getName());
+
+        // then
+        assertThat(statements.getCount()).isEqualTo(3);
+        assertThat(statements.getMaxRepeat()).isEqualTo(2);
+        assertThat(statements.getMostRepeatedShape()).contains("from team");
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void usernameIndexTest() throws Exception{
+        // given: 인덱스는 커밋된 변경만 반영한다
+        List<Member> members = memberRepository.saveAll(List.of(
+                new Member("autoB", 10),
+                new Member("autoA", 20),
+                new Member("autoC", 30),
+                new Member("other", 40)));
+
+        // 기동 때 예약된 재구축이 끝났는지와 상관없이 인덱스 경로를 확인한다
+        usernameIndex.rebuild();
+
+        try {
+            // when, then
+            assertThat(usernameIndex.search("auto", 2)).extracting("username").containsExactly("autoA", "autoB");
+
+            // 이름 변경, 삭제
+            transactionTemplate.executeWithoutResult(status -> {
+                memberRepository.findById(members.get(0).getId()).get().setUsername("otherB");
+                memberRepository.deleteById(members.get(1).getId());
+            });
+            assertThat(usernameIndex.search("auto", 10)).extracting("username").containsExactly("autoC");
+            assertThat(usernameIndex.search("other", 10)).extracting("username").containsExactly("other", "otherB");
+
+            // 롤백된 변경은 반영되지 않는다
+            transactionTemplate.executeWithoutResult(status -> {
+                memberRepository.save(new Member("autoD", 50));
+                memberRepository.flush();
+                status.setRollbackOnly();
+            });
+            assertThat(usernameIndex.search("autoD", 10)).isEmpty();
+        } finally {
+            memberRepository.deleteAllById(List.of(members.get(0).getId(), members.get(2).getId(), members.get(3).getId()));
+        }
+        assertThat(usernameIndex.search("auto", 10)).isEmpty();
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void usernameIndexLargeTransactionTest() throws Exception{
+        // given
+        usernameIndex.rebuild();
+
+        try {
+            // when: 한 트랜잭션에서 회원 2000 명 저장
+            int synchronizations = transactionTemplate.execute(status -> {
+                memberBulkLoader.loadWithJpa(1, 2000, 500);
+                return TransactionSynchronizationManager.getSynchronizations().size();
+            });
+            // 커밋 후 재구축은 백그라운드에서 도므로 여기서 직접 한 번 만든다
+            usernameIndex.rebuild();
+
+            // then: 회원마다 동기화를 등록하지 않는다
+            assertThat(synchronizations).isLessThan(10);
+            assertThat(usernameIndex.search("member1999", 10)).extracting("username").containsExactly("member1999");
+        } finally {
+            jdbcTemplate.update("delete from member");
+            jdbcTemplate.update("delete from team");
+            usernameIndex.rebuild();
+        }
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void usernameIndexRebuildTest() throws Exception{
+        // given: 리스너를 거치지 않은 JDBC 적재, max-entries 가 3 인 인덱스
+        memberBulkLoader.loadWithJdbc(1, 3, 10);
+        UsernameIndex index = new UsernameIndex(jdbcTemplate, transactionManager, Runnable::run, 3);
+
+        try {
+            // when: 재구축 전에는 DB 접두사 조회, 재구축 후에는 인덱스
+            List<MemberAutocompleteDto> beforeRebuild = index.search("member", 10);
+            index.rebuild();
+            List<MemberAutocompleteDto> indexed = index.search("member", 2);
+            // 한도를 넘으면 인덱스를 비우고 DB 로 조회한다
+            jdbcTemplate.update("insert into member (member_id, username, age) values (-1, 'member_x', 1)");
+            index.rebuild();
+            List<MemberAutocompleteDto> overLimit = index.search("member_", 10);
+
+            // then
+            assertThat(beforeRebuild).extracting("username").containsExactly("member0", "member1", "member2");
+            assertThat(indexed).extracting("username").containsExactly("member0", "member1");
+            assertThat(overLimit).extracting("username").containsExactly("member_x");
+        } finally {
+            jdbcTemplate.update("delete from member");
+            jdbcTemplate.update("delete from team");
+        }
+    }
+}
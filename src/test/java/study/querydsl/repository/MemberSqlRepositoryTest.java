@@ -0,0 +1,144 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.Path;
+import com.querydsl.sql.ColumnMetadata;
+import com.querydsl.sql.RelationalPath;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.sql.SMember;
+import study.querydsl.sql.STeam;
+
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "member.sql-search.methods=search,searchPageComplex,searchSlice")
+@Transactional
+class MemberSqlRepositoryTest {
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberJPARepository memberJPARepository;
+
+    @Autowired
+    MemberSqlRepository memberSqlRepository;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Test
+    void sqlSearchTest() throws Exception{
+        // given: flush 하지 않은 상태 (MemberRepositoryImpl 이 넘기기 전에 flush 한다)
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 0; i < 20; i++) {
+            em.persist(new Member("member" + (i % 5), i * 5, i % 2 == 0 ? teamA : teamB));
+        }
+        em.persist(new Member("noTeam", 50));
+
+        // when, then
+        // 16가지 조건 조합 모두 JPA 경로와 결과가 같아야 한다
+        assertThat(memberSqlRepository.handles("search")).isTrue();
+        for (int shape = 0; shape < 16; shape++) {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setUsername((shape & 1) != 0 ? "member2" : null);
+            condition.setTeamName((shape & 2) != 0 ? "teamA" : null);
+            condition.setAgeGoe((shape & 4) != 0 ? 20 : null);
+            condition.setAgeLoe((shape & 8) != 0 ? 80 : null);
+
+            List<MemberTeamDto> expected = memberJPARepository.search(condition);
+            assertThat(memberRepository.search(condition)).usingRecursiveFieldByFieldElementComparator()
+                    .containsExactlyInAnyOrderElementsOf(expected);
+            assertThat(memberRepository.searchPageComplex(condition, PageRequest.of(0, 3)).getTotalElements())
+                    .isEqualTo(expected.size());
+        }
+    }
+
+    @Test
+    void sqlSliceTest() throws Exception{
+        // given
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 0; i < 5; i++) {
+            em.persist(new Member("member" + i, 10 + i, teamA));
+        }
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+
+        // when
+        Slice<MemberTeamDto> first = memberRepository.searchSlice(condition, PageRequest.of(0, 3));
+        Slice<MemberTeamDto> last = memberRepository.searchSlice(condition, PageRequest.of(1, 3));
+
+        // then
+        assertThat(first.hasNext()).isTrue();
+        assertThat(last.getContent()).hasSize(2);
+        assertThat(last.hasNext()).isFalse();
+    }
+
+    @Test
+    void sqlMetadataTest() throws Exception{
+        // given: Hibernate(ddl-auto)가 엔티티로 만든 실제 스키마
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+
+            // when, then
+            // 손으로 쓴 SMember/STeam 이 엔티티 컬럼과 어긋나면 여기서 깨진다 (이름, 순서, 타입, 크기, null 여부)
+            assertThat(describe(SMember.member)).isEqualTo(describe(metaData, "MEMBER"));
+            assertThat(describe(STeam.team)).isEqualTo(describe(metaData, "TEAM"));
+
+            // member.team_id -> team.id 외래 키
+            try (ResultSet rs = metaData.getImportedKeys(null, SMember.member.getSchemaName(), SMember.member.getTableName())) {
+                assertThat(rs.next()).isTrue();
+                assertThat(rs.getString("FKCOLUMN_NAME")).isEqualTo(
+                        SMember.member.getMetadata(SMember.member.teamFk.getLocalColumns().get(0)).getName());
+                assertThat(rs.getString("PKTABLE_NAME")).isEqualTo(STeam.team.getTableName());
+                assertThat(rs.getString("PKCOLUMN_NAME")).isEqualTo(SMember.member.teamFk.getForeignColumns().get(0));
+                assertThat(rs.next()).isFalse();
+            }
+        }
+    }
+
+    private List<String> describe(RelationalPath<?> table) {
+        List<String> columns = new ArrayList<>();
+        for (Path<?> column : table.getColumns()) {
+            ColumnMetadata metadata = table.getMetadata(column);
+            columns.add(metadata.getIndex() + " " + metadata.getName() + " " + metadata.getJdbcType()
+                    + " " + metadata.getSize() + (metadata.isNullable() ? "" : " not null"));
+        }
+        columns.sort(null);
+        return columns;
+    }
+
+    private List<String> describe(DatabaseMetaData metaData, String table) throws SQLException {
+        List<String> columns = new ArrayList<>();
+        try (ResultSet rs = metaData.getColumns(null, "PUBLIC", table, null)) {
+            while (rs.next()) {
+                columns.add(rs.getInt("ORDINAL_POSITION") + " " + rs.getString("COLUMN_NAME") + " " + rs.getInt("DATA_TYPE")
+                        + " " + rs.getInt("COLUMN_SIZE") + (rs.getInt("NULLABLE") == DatabaseMetaData.columnNoNulls ? " not null" : ""));
+            }
+        }
+        columns.sort(null);
+        return columns;
+    }
+}
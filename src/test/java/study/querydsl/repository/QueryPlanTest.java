@@ -0,0 +1,113 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.monitor.StatementCountExtension;
+import study.querydsl.monitor.StatementStats;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 검색 조건 조합(shape)별로 Hibernate 가 만든 SQL 을 H2 EXPLAIN 에 넣어서
+ * 어느 테이블도 풀 스캔하지 않는지 확인한다.
+ * H2 계획 주석에서 인덱스 탐색은 "PUBLIC.IDX_X: COL = ?1" 처럼 조건이 붙고,
+ * 풀 스캔은 "PUBLIC.MEMBER.tableScan", "PUBLIC.IDX_X" 처럼 조건 없이 나온다.
+ */
+@SpringBootTest
+@Transactional
+@ExtendWith(StatementCountExtension.class)
+class QueryPlanTest {
+    static final Pattern FULL_SCAN = Pattern.compile("/\\* PUBLIC\\.[\\w.]+ \\*/");
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    MemberBulkLoader memberBulkLoader;
+
+    @Autowired
+    TeamNameResolver teamNameResolver;
+
+    MemberSearchQueryTemplates templates;
+
+    @BeforeEach
+    void before() {
+        memberBulkLoader.loadWithJdbc(20, 5000, 1000);
+        templates = new MemberSearchQueryTemplates(teamNameResolver);
+    }
+
+    @Test
+    void searchUsesIndexForEveryFilter(StatementStats statements) throws Exception{
+        // 조건이 없는 shape 0 은 전체 조회이므로 제외
+        for (int shape = 1; shape < 16; shape++) {
+            MemberSearchCondition condition = conditionOf(shape);
+
+            String contentPlan = explain(statements, () -> templates.fetch(em, condition), condition);
+            String countPlan = explain(statements, () -> templates.count(em, condition), condition);
+
+            assertThat(contentPlan).as("shape %d content plan", shape).doesNotContainPattern(FULL_SCAN);
+            assertThat(countPlan).as("shape %d count plan", shape).doesNotContainPattern(FULL_SCAN);
+        }
+    }
+
+    @Test
+    void countQueryDoesNotJoinTeam() throws Exception{
+        for (int shape = 0; shape < 16; shape++) {
+            MemberSearchCondition condition = conditionOf(shape);
+
+            assertThat(templates.countJpql(condition)).as("shape %d", shape).doesNotContain("join");
+            assertThat(templates.contentJpql(condition)).as("shape %d", shape).containsPattern("left join \\w+\\.team");
+        }
+    }
+
+    private MemberSearchCondition conditionOf(int shape) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername((shape & 1) != 0 ? "member10" : null);
+        condition.setTeamName((shape & 2) != 0 ? "teamB" : null);
+        condition.setAgeGoe((shape & 4) != 0 ? 30 : null);
+        condition.setAgeLoe((shape & 8) != 0 ? 35 : null);
+        return condition;
+    }
+
+    // 쿼리를 실행하면서 p6spy(StatementCounter)로 Hibernate 가 만든 SQL 을 받아 EXPLAIN 한다
+    private String explain(StatementStats statements, Runnable query, MemberSearchCondition condition) {
+        if (condition.getTeamName() != null) {
+            // 팀 이름 → id 조회가 섞이지 않도록 미리 캐시해 둔다
+            teamNameResolver.resolve(condition.getTeamName());
+        }
+        statements.reset();
+        query.run();
+        assertThat(statements.getCount()).isEqualTo(1);
+        String sql = statements.getMostRepeatedShape();
+
+        // 파라미터는 where 절의 조건 순서(username, teamIds, ageGoe, ageLoe)대로 들어간다
+        List<Object> args = new ArrayList<>();
+        if (condition.getUsername() != null) {
+            args.add(condition.getUsername());
+        }
+        if (condition.getTeamName() != null) {
+            args.add(teamNameResolver.resolve(condition.getTeamName()).get(0));
+        }
+        if (condition.getAgeGoe() != null) {
+            args.add(condition.getAgeGoe());
+        }
+        if (condition.getAgeLoe() != null) {
+            args.add(condition.getAgeLoe());
+        }
+        return String.join("\n", jdbcTemplate.queryForList("explain " + sql, String.class, args.toArray()));
+    }
+}